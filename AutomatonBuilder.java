@@ -0,0 +1,145 @@
+import java.security.InvalidAlgorithmParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * State, symbol and transition bookkeeping shared by {@link NFABuilder} and
+ * {@link DFABuilder}.
+ * States are numbered 0..n-1 in the order they are added, names and symbols
+ * are looked up through hash maps and transitions are kept in parallel int
+ * arrays in the order they were added.
+ */
+public abstract class AutomatonBuilder<B extends AutomatonBuilder<B>> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    final List<String> names;
+    private final HashMap<String, Integer> indexOfName;
+    final List<String> symbols;
+    private final HashMap<String, Integer> indexOfSymbol;
+    final BitSet acceptStates;
+    int startState;
+
+    int[] from;
+    int[] symbolOf;
+    int[] to;
+    int transitionCount;
+
+    AutomatonBuilder() {
+        this.names = new ArrayList<>();
+        this.indexOfName = new HashMap<>();
+        this.symbols = new ArrayList<>();
+        this.indexOfSymbol = new HashMap<>();
+        this.acceptStates = new BitSet();
+        this.startState = -1;
+        this.from = new int[INITIAL_CAPACITY];
+        this.symbolOf = new int[INITIAL_CAPACITY];
+        this.to = new int[INITIAL_CAPACITY];
+    }
+
+    @SuppressWarnings("unchecked")
+    private B self() {
+        return (B) this;
+    }
+
+    /**
+     * Adds an unnamed state, it is named "q" followed by its id, with primes
+     * appended while a named state already has that name.
+     */
+    public int addState() {
+        names.add(null);
+        return names.size() - 1;
+    }
+
+    /**
+     * Returns the state with this name, adding it if there is none yet.
+     */
+    public int state(String name) {
+        Integer index = indexOfName.get(name);
+        if (index == null) {
+            index = names.size();
+            names.add(name);
+            indexOfName.put(name, index);
+        }
+        return index;
+    }
+
+    /**
+     * @return the id of the named state, or -1 if there is none.
+     */
+    public int indexOf(String name) {
+        Integer index = indexOfName.get(name);
+        return index == null ? -1 : index;
+    }
+
+    public B addTransition(int fromState, String symbol, int toState) {
+        checkState(fromState);
+        checkState(toState);
+
+        Integer symbolIndex = indexOfSymbol.get(symbol);
+        if (symbolIndex == null) {
+            symbolIndex = symbols.size();
+            symbols.add(symbol);
+            indexOfSymbol.put(symbol, symbolIndex);
+        }
+
+        if (transitionCount == from.length) {
+            from = Arrays.copyOf(from, transitionCount * 2);
+            symbolOf = Arrays.copyOf(symbolOf, transitionCount * 2);
+            to = Arrays.copyOf(to, transitionCount * 2);
+        }
+        from[transitionCount] = fromState;
+        symbolOf[transitionCount] = symbolIndex;
+        to[transitionCount] = toState;
+        ++transitionCount;
+        return self();
+    }
+
+    public B setStartState(int state) {
+        checkState(state);
+        startState = state;
+        return self();
+    }
+
+    public B addAcceptState(int state) {
+        checkState(state);
+        acceptStates.set(state);
+        return self();
+    }
+
+    public int getStateCount() {
+        return names.size();
+    }
+
+    public int getTransitionCount() {
+        return transitionCount;
+    }
+
+    private void checkState(int state) {
+        if (state < 0 || state >= names.size()) {
+            throw new IllegalArgumentException("Unknown state " + state + ".");
+        }
+    }
+
+    void checkStartAndAccept() throws InvalidAlgorithmParameterException {
+        if (startState < 0) {
+            throw new InvalidAlgorithmParameterException("No start state detected.");
+        } else if (acceptStates.isEmpty()) {
+            throw new InvalidAlgorithmParameterException("No accept state detected.");
+        }
+    }
+
+    String nameOf(int state) {
+        String name = names.get(state);
+        if (name == null) {
+            name = "q" + state;
+            while (indexOfName.containsKey(name)) {
+                name += "'";
+            }
+        }
+        return name;
+    }
+
+}
@@ -0,0 +1,451 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Cache of converted DFAs keyed by the structure of the NFA, so structurally
+ * identical NFAs are converted once. Entries are evicted least recently used
+ * first once the estimated size of their transition tables exceeds the limit.
+ * The cached DFA is shared: it must not be modified, and its state names are
+ * those of the NFA that was converted first.
+ * Thread-safe. Conversions run outside the lock, two threads missing on the
+ * same NFA at once both convert it.
+ */
+public final class AutomatonCache {
+    private static final int MAX_LEAVES = 4096;
+
+    /**
+     * Canonical form of an NFA: the alphabet and the states reachable from
+     * the start state, numbered in an order that depends only on the structure.
+     * States are ordered by a refinement of their start and accept flags and
+     * their transitions. Ties that refinement cannot separate are broken by
+     * trying each state of the first tied class in turn and refining again,
+     * the smallest encoding wins; branches that an automorphism already
+     * covered are skipped. After a few thousand encodings the search stops,
+     * then two identical NFAs can get different fingerprints, but never two
+     * different NFAs the same one.
+     */
+    public static final class Fingerprint {
+        private final String[] alphabet;
+        private final int[] encoding;
+        private final int hashCode;
+
+        private Fingerprint(String[] alphabet, int[] encoding) {
+            this.alphabet = alphabet;
+            this.encoding = encoding;
+            this.hashCode = 31 * Arrays.hashCode(alphabet) + Arrays.hashCode(encoding);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) o;
+            return hashCode == other.hashCode
+                    && Arrays.equals(encoding, other.encoding)
+                    && Arrays.equals(alphabet, other.alphabet);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%08x", hashCode);
+        }
+    }
+
+    private static final class Entry {
+        final DFA dfa;
+        final long bytes;
+
+        Entry(DFA dfa, long bytes) {
+            this.dfa = dfa;
+            this.bytes = bytes;
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<Fingerprint, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * @param maxBytes limit on the estimated transition table bytes of all entries
+     */
+    public AutomatonCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("The size limit must not be negative.");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached DFA of a structurally identical NFA, or converts
+     * {@code nfa} and caches the result. A DFA larger than the whole limit is
+     * returned without being cached.
+     */
+    public DFA get(NFA nfa) {
+        Fingerprint fingerprint = fingerprint(nfa);
+        synchronized (this) {
+            Entry entry = entries.get(fingerprint);
+            if (entry != null) {
+                ++hitCount;
+                return entry.dfa;
+            }
+            ++missCount;
+        }
+
+        DFA dfa = DFA.convertFrom(nfa);
+        long size = estimateBytes(dfa);
+        synchronized (this) {
+            if (size <= maxBytes && !entries.containsKey(fingerprint)) {
+                entries.put(fingerprint, new Entry(dfa, size));
+                bytes += size;
+                evict();
+            }
+        }
+        return dfa;
+    }
+
+    /**
+     * @return the cached DFA, or null; counts as a hit or a miss
+     */
+    public synchronized DFA getIfPresent(NFA nfa) {
+        Entry entry = entries.get(fingerprint(nfa));
+        if (entry == null) {
+            ++missCount;
+            return null;
+        }
+        ++hitCount;
+        return entry.dfa;
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+            ++evictionCount;
+        }
+    }
+
+    /**
+     * One int per state and symbol, the size of its compiled table before
+     * symbols are merged into classes.
+     */
+    static long estimateBytes(DFA dfa) {
+        return (long) Integer.BYTES * dfa.getStates().size() * Math.max(1, dfa.getAlphabet().size());
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getByteSize() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public static Fingerprint fingerprint(NFA nfa) {
+        List<NState> states = new ArrayList<>();
+        HashMap<NState, Integer> indexOfState = new HashMap<>();
+        states.add(nfa.getStartState());
+        indexOfState.put(nfa.getStartState(), 0);
+        for (int i = 0 ; i < states.size() ; ++i) {
+            for (NState nextState : states.get(i).getNextStates()) {
+                if (!indexOfState.containsKey(nextState)) {
+                    indexOfState.put(nextState, states.size());
+                    states.add(nextState);
+                }
+            }
+        }
+
+        TreeSet<String> symbols = new TreeSet<>();
+        boolean epsilon = false;
+        for (Set<NState> part : Arrays.asList(nfa.getStates(), indexOfState.keySet())) {
+            for (NState state : part) {
+                for (String symbol : state.getSymbols()) {
+                    if (symbol == null) {
+                        epsilon = true;
+                    } else {
+                        symbols.add(symbol);
+                    }
+                }
+            }
+        }
+        String[] alphabet = new String[symbols.size() + (epsilon ? 1 : 0)];
+        int symbolCount = 0;
+        if (epsilon) {
+            alphabet[symbolCount++] = null;
+        }
+        for (String symbol : symbols) {
+            alphabet[symbolCount++] = symbol;
+        }
+        HashMap<String, Integer> indexOfSymbol = new HashMap<>();
+        for (int i = 0 ; i < alphabet.length ; ++i) {
+            indexOfSymbol.put(alphabet[i], i);
+        }
+
+        int n = states.size();
+        int[][] edges = new int[n][];
+        boolean[] accepting = new boolean[n];
+        Set<NState> acceptStates = nfa.getAcceptStates();
+        for (int s = 0 ; s < n ; ++s) {
+            NState state = states.get(s);
+            List<int[]> stateEdges = new ArrayList<>();
+            for (String symbol : state.getSymbols()) {
+                Set<NState> nextStates = state.getNextStates(symbol);
+                if (nextStates != null) {
+                    for (NState nextState : nextStates) {
+                        stateEdges.add(new int[] { indexOfSymbol.get(symbol), indexOfState.get(nextState) });
+                    }
+                }
+            }
+            edges[s] = new int[2 * stateEdges.size()];
+            for (int e = 0 ; e < stateEdges.size() ; ++e) {
+                edges[s][2 * e] = stateEdges.get(e)[0];
+                edges[s][2 * e + 1] = stateEdges.get(e)[1];
+            }
+            accepting[s] = acceptStates.contains(state);
+        }
+
+        int[] colors = new int[n];
+        for (int s = 0 ; s < n ; ++s) {
+            colors[s] = (s == 0 ? 2 : 0) + (accepting[s] ? 1 : 0);
+        }
+        CanonicalSearch search = new CanonicalSearch(edges, accepting);
+        search.search(refine(edges, colors), new int[0]);
+        return new Fingerprint(alphabet, search.best);
+    }
+
+    /**
+     * Splits states by their color and their outgoing (symbol, color) pairs
+     * until the number of colors stops growing. New colors are numbered in
+     * the order of the sorted signatures, so they depend only on the structure.
+     */
+    private static int[] refine(int[][] edges, int[] colors) {
+        int n = edges.length;
+        int[][] signatures = new int[n][];
+        Integer[] sorted = new Integer[n];
+        int colorCount = 0;
+        while (true) {
+            for (int s = 0 ; s < n ; ++s) {
+                long[] pairs = new long[edges[s].length / 2];
+                for (int e = 0 ; e < pairs.length ; ++e) {
+                    pairs[e] = ((long) edges[s][2 * e] << 32) | colors[edges[s][2 * e + 1]];
+                }
+                Arrays.sort(pairs);
+                int[] signature = new int[1 + 2 * pairs.length];
+                signature[0] = colors[s];
+                for (int e = 0 ; e < pairs.length ; ++e) {
+                    signature[1 + 2 * e] = (int) (pairs[e] >>> 32);
+                    signature[2 + 2 * e] = (int) pairs[e];
+                }
+                signatures[s] = signature;
+                sorted[s] = s;
+            }
+            Arrays.sort(sorted, (s, t) -> Arrays.compare(signatures[s], signatures[t]));
+
+            int[] refined = new int[n];
+            int color = 0;
+            for (int i = 0 ; i < n ; ++i) {
+                if (i > 0 && !Arrays.equals(signatures[sorted[i]], signatures[sorted[i - 1]])) {
+                    ++color;
+                }
+                refined[sorted[i]] = color;
+            }
+            colors = refined;
+            if (color + 1 == colorCount) {
+                return colors;
+            }
+            colorCount = color + 1;
+        }
+    }
+
+    /**
+     * Individualization and refinement: a discrete coloring is a numbering of
+     * the states, the one with the smallest encoding is kept. Two numberings
+     * with the same encoding differ by an automorphism, which is recorded to
+     * skip branches it maps onto explored ones.
+     */
+    private static final class CanonicalSearch {
+        private final int[][] edges;
+        private final boolean[] accepting;
+        private final List<int[]> automorphisms = new ArrayList<>();
+        private int[] best;
+        private int[] bestStateOfIndex;
+        private int leafCount;
+
+        CanonicalSearch(int[][] edges, boolean[] accepting) {
+            this.edges = edges;
+            this.accepting = accepting;
+        }
+
+        /**
+         * @param path the states individualized so far
+         */
+        void search(int[] colors, int[] path) {
+            int n = colors.length;
+            int[] size = new int[n];
+            for (int s = 0 ; s < n ; ++s) {
+                ++size[colors[s]];
+            }
+            int cell = 0;
+            while (cell < n && size[cell] < 2) {
+                ++cell;
+            }
+            if (cell == n) {
+                leaf(colors);
+                return;
+            }
+
+            List<Integer> explored = new ArrayList<>();
+            int[] extended = Arrays.copyOf(path, path.length + 1);
+            for (int v = 0 ; v < n ; ++v) {
+                if (colors[v] != cell || isCovered(v, explored, path)) {
+                    continue;
+                }
+                if (leafCount >= MAX_LEAVES && !explored.isEmpty()) {
+                    return;
+                }
+                explored.add(v);
+                int[] individualized = new int[n];
+                for (int s = 0 ; s < n ; ++s) {
+                    individualized[s] = 2 * colors[s] + (s == v ? 0 : 1);
+                }
+                extended[path.length] = v;
+                search(refine(edges, individualized), extended.clone());
+            }
+        }
+
+        private void leaf(int[] order) {
+            ++leafCount;
+            int[] encoding = encode(edges, accepting, order);
+            int[] stateOfIndex = new int[order.length];
+            for (int s = 0 ; s < order.length ; ++s) {
+                stateOfIndex[order[s]] = s;
+            }
+
+            int c = best == null ? -1 : Arrays.compare(encoding, best);
+            if (c < 0) {
+                best = encoding;
+                bestStateOfIndex = stateOfIndex;
+            } else if (c == 0) {
+                int[] automorphism = new int[order.length];
+                for (int s = 0 ; s < order.length ; ++s) {
+                    automorphism[s] = bestStateOfIndex[order[s]];
+                }
+                automorphisms.add(automorphism);
+            }
+        }
+
+        /**
+         * Whether an automorphism fixing the path maps {@code v} into the
+         * orbit of an explored state.
+         */
+        private boolean isCovered(int v, List<Integer> explored, int[] path) {
+            if (explored.isEmpty() || automorphisms.isEmpty()) {
+                return false;
+            }
+            int[] parent = new int[edges.length];
+            for (int s = 0 ; s < parent.length ; ++s) {
+                parent[s] = s;
+            }
+            for (int[] automorphism : automorphisms) {
+                boolean fixesPath = true;
+                for (int s : path) {
+                    fixesPath &= automorphism[s] == s;
+                }
+                if (fixesPath) {
+                    for (int s = 0 ; s < parent.length ; ++s) {
+                        parent[find(parent, s)] = find(parent, automorphism[s]);
+                    }
+                }
+            }
+            for (int w : explored) {
+                if (find(parent, v) == find(parent, w)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int find(int[] parent, int s) {
+            while (parent[s] != s) {
+                parent[s] = parent[parent[s]];
+                s = parent[s];
+            }
+            return s;
+        }
+    }
+
+    /**
+     * State count and the index of the start state, then per state in
+     * canonical order: accept flag, edge count and the sorted (symbol,
+     * canonical target) pairs.
+     */
+    private static int[] encode(int[][] edges, boolean[] accepting, int[] order) {
+        int n = edges.length;
+        int[] stateOfIndex = new int[n];
+        int length = 2;
+        for (int s = 0 ; s < n ; ++s) {
+            stateOfIndex[order[s]] = s;
+            length += 2 + edges[s].length;
+        }
+
+        int[] encoding = new int[length];
+        int i = 0;
+        encoding[i++] = n;
+        encoding[i++] = order[0];
+        for (int index = 0 ; index < n ; ++index) {
+            int s = stateOfIndex[index];
+            long[] pairs = new long[edges[s].length / 2];
+            for (int e = 0 ; e < pairs.length ; ++e) {
+                pairs[e] = ((long) edges[s][2 * e] << 32) | order[edges[s][2 * e + 1]];
+            }
+            Arrays.sort(pairs);
+            encoding[i++] = accepting[s] ? 1 : 0;
+            encoding[i++] = pairs.length;
+            for (long pair : pairs) {
+                encoding[i++] = (int) (pair >>> 32);
+                encoding[i++] = (int) pair;
+            }
+        }
+        return encoding;
+    }
+
+}
@@ -0,0 +1,247 @@
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes DFAs and NFAs to an Appendable as they are walked, so the output is
+ * never held in memory and time is linear in its size.
+ * TEXT is the layout of {@link DFA#toString()}, DOT is for Graphviz, JSON
+ * lists the states and the transitions. States are identified by their
+ * state id in DOT and JSON, names are only labels. Missing transitions are
+ * simply not written.
+ */
+public final class AutomatonExporter {
+
+    public enum Format {
+        TEXT, DOT, JSON
+    }
+
+    private static final String EPSILON_LABEL = "\u03b5";
+
+    private interface EdgeVisitor {
+        void visit(String symbol, State nextState) throws IOException;
+    }
+
+    private final String kind;
+    private final String title;
+    private final Set<? extends State> states;
+    private final Set<String> alphabet;
+    private final State startState;
+    private final Set<? extends State> acceptStates;
+
+    private AutomatonExporter(Object automaton, Set<? extends State> states, Set<String> alphabet,
+                              State startState, Set<? extends State> acceptStates) {
+        this.kind = automaton.getClass().getSimpleName();
+        this.title = automaton.getClass().getName() + "@" + Integer.toHexString(automaton.hashCode());
+        this.states = states;
+        this.alphabet = alphabet;
+        this.startState = startState;
+        this.acceptStates = acceptStates;
+    }
+
+    public static void export(DFA dfa, Format format, Appendable out) throws IOException {
+        new AutomatonExporter(dfa, dfa.getStates(), dfa.getAlphabet(), dfa.getStartState(), dfa.getAcceptStates())
+                .write(format, out);
+    }
+
+    public static void export(NFA nfa, Format format, Appendable out) throws IOException {
+        new AutomatonExporter(nfa, nfa.getStates(), nfa.getAlphabet(), nfa.getStartState(), nfa.getAcceptStates())
+                .write(format, out);
+    }
+
+    private void write(Format format, Appendable out) throws IOException {
+        switch (format) {
+            case DOT:
+                writeDot(out);
+                break;
+            case JSON:
+                writeJson(out);
+                break;
+            default:
+                writeText(out);
+                break;
+        }
+    }
+
+    private static void forEachEdge(State state, EdgeVisitor visitor) throws IOException {
+        if (state instanceof DState) {
+            DState dState = (DState) state;
+            for (String symbol : dState.getSymbols()) {
+                DState nextState = dState.getNextState(symbol);
+                if (nextState != null) {
+                    visitor.visit(symbol, nextState);
+                }
+            }
+        } else {
+            NState nState = (NState) state;
+            for (String symbol : nState.getSymbols()) {
+                for (NState nextState : nState.getNextStates(symbol)) {
+                    visitor.visit(symbol, nextState);
+                }
+            }
+        }
+    }
+
+    /**
+     * Epsilon transitions are shown as "<e>", like states with an empty name.
+     */
+    private void writeText(Appendable out) throws IOException {
+        out.append("----- ").append(title).append(" -----\n");
+
+        out.append("States: \n");
+        for (State state : states) {
+            if ("".equals(state.getStateName())) {
+                out.append("<e>");
+            }
+            out.append(state.getStateName()).append('\n');
+        }
+        out.append('\n');
+
+        out.append("Alphabet: \n");
+        for (String symbol : alphabet) {
+            out.append(symbol == null ? "<e>" : symbol).append('\n');
+        }
+        out.append('\n');
+
+        out.append("Transition Functions: \n");
+        for (State state : states) {
+            forEachEdge(state, (symbol, nextState) -> out
+                    .append("Move From: ").append(state.getStateName())
+                    .append(" To: ").append(nextState.getStateName())
+                    .append(" By: ").append(symbol == null ? "<e>" : symbol).append('\n'));
+        }
+        out.append('\n');
+
+        out.append("Start state: ").append(startState.getStateName()).append('\n');
+        out.append('\n');
+
+        out.append("Accept state:");
+        for (State state : acceptStates) {
+            out.append('\n').append(state.getStateName());
+        }
+    }
+
+    /**
+     * Parallel transitions are merged into one edge labelled with all their symbols.
+     */
+    private void writeDot(Appendable out) throws IOException {
+        out.append("digraph ").append(kind).append(" {\n");
+        out.append("    rankdir=LR;\n");
+        out.append("    start [shape=point];\n");
+        out.append("    start -> s").append(Integer.toString(startState.getStateID())).append(";\n");
+
+        for (State state : states) {
+            out.append("    s").append(Integer.toString(state.getStateID()))
+               .append(" [label=\"").append(escapeDot(String.valueOf(state.getStateName())))
+               .append("\", shape=").append(acceptStates.contains(state) ? "doublecircle" : "circle").append("];\n");
+        }
+
+        Map<State, StringBuilder> labels = new LinkedHashMap<>();
+        for (State state : states) {
+            labels.clear();
+            forEachEdge(state, (symbol, nextState) -> {
+                StringBuilder label = labels.get(nextState);
+                if (label == null) {
+                    labels.put(nextState, new StringBuilder(symbol == null ? EPSILON_LABEL : symbol));
+                } else {
+                    label.append(", ").append(symbol == null ? EPSILON_LABEL : symbol);
+                }
+            });
+            for (Map.Entry<State, StringBuilder> edge : labels.entrySet()) {
+                out.append("    s").append(Integer.toString(state.getStateID()))
+                   .append(" -> s").append(Integer.toString(edge.getKey().getStateID()))
+                   .append(" [label=\"").append(escapeDot(edge.getValue().toString())).append("\"];\n");
+            }
+        }
+        out.append("}\n");
+    }
+
+    /**
+     * Epsilon transitions have a null symbol.
+     */
+    private void writeJson(Appendable out) throws IOException {
+        out.append("{\n");
+        out.append("  \"type\": \"").append(kind).append("\",\n");
+
+        out.append("  \"alphabet\": [");
+        boolean first = true;
+        for (String symbol : alphabet) {
+            out.append(first ? "" : ", ");
+            appendJsonString(out, symbol);
+            first = false;
+        }
+        out.append("],\n");
+
+        out.append("  \"start\": ").append(Integer.toString(startState.getStateID())).append(",\n");
+
+        out.append("  \"states\": [");
+        first = true;
+        for (State state : states) {
+            out.append(first ? "\n" : ",\n");
+            out.append("    {\"id\": ").append(Integer.toString(state.getStateID())).append(", \"name\": ");
+            appendJsonString(out, state.getStateName());
+            out.append(", \"accepting\": ").append(Boolean.toString(acceptStates.contains(state))).append('}');
+            first = false;
+        }
+        out.append("\n  ],\n");
+
+        out.append("  \"transitions\": [");
+        boolean[] firstEdge = { true };
+        for (State state : states) {
+            forEachEdge(state, (symbol, nextState) -> {
+                out.append(firstEdge[0] ? "\n" : ",\n");
+                out.append("    {\"from\": ").append(Integer.toString(state.getStateID())).append(", \"symbol\": ");
+                appendJsonString(out, symbol);
+                out.append(", \"to\": ").append(Integer.toString(nextState.getStateID())).append('}');
+                firstEdge[0] = false;
+            });
+        }
+        out.append("\n  ]\n");
+        out.append("}\n");
+    }
+
+    /**
+     * A newline becomes Graphviz's line break, other control characters and
+     * the ampersand become character references, which Graphviz resolves in labels.
+     */
+    private static String escapeDot(String string) {
+        StringBuilder escaped = new StringBuilder(string.length());
+        for (int i = 0 ; i < string.length() ; ++i) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c == '\n') {
+                escaped.append("\\n");
+            } else if (c == '&') {
+                escaped.append("&amp;");
+            } else if (c < 0x20 || c == 0x7f) {
+                escaped.append("&#").append((int) c).append(';');
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static void appendJsonString(Appendable out, String string) throws IOException {
+        if (string == null) {
+            out.append("null");
+            return;
+        }
+
+        out.append('"');
+        for (int i = 0 ; i < string.length() ; ++i) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+}
@@ -0,0 +1,141 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects conversion and matching figures.
+ * Match figures are thread-safe, a conversion is expected to report from one thread.
+ */
+public class AutomatonMetrics implements ConversionListener, MatchListener {
+    private static final int WORKLIST_SAMPLE_INTERVAL = 1024;
+
+    private long subsetsDiscovered;
+    private long subsetsExpanded;
+    private long closuresComputed;
+    private long closureLookups;
+    private int peakSubsetSize;
+    private int peakWorklistDepth;
+    private final List<Integer> worklistDepthSamples = new ArrayList<>();
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private long conversionTransitions;
+    private long conversionNanos;
+
+    private final LongAdder inputs = new LongAdder();
+    private final LongAdder acceptedInputs = new LongAdder();
+    private final LongAdder matchedCharacters = new LongAdder();
+    private final AtomicLong matchNanos = new AtomicLong();
+
+    @Override
+    public void onNFACompiled(int nfaStates, int closures, long nanos) {
+        closuresComputed += closures;
+        onPhase("compile NFA", nanos);
+    }
+
+    @Override
+    public void onSubsetExpanded(int index, int subsetSize, int closureLookups, int worklistDepth) {
+        if (subsetsExpanded++ % WORKLIST_SAMPLE_INTERVAL == 0) {
+            worklistDepthSamples.add(worklistDepth);
+        }
+        this.closureLookups += closureLookups;
+        peakSubsetSize = Math.max(peakSubsetSize, subsetSize);
+        peakWorklistDepth = Math.max(peakWorklistDepth, worklistDepth);
+    }
+
+    @Override
+    public void onPhase(String phase, long nanos) {
+        phaseNanos.merge(phase, nanos, Long::sum);
+    }
+
+    @Override
+    public void onConversionFinished(int dfaStates, long transitions, long nanos) {
+        subsetsDiscovered += dfaStates;
+        conversionTransitions += transitions;
+        conversionNanos += nanos;
+    }
+
+    @Override
+    public void onInput(int length, boolean accepted, long nanos) {
+        inputs.increment();
+        if (accepted) {
+            acceptedInputs.increment();
+        }
+        matchedCharacters.add(length);
+        matchNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Subsets found, also those a {@link ConversionBudget} stopped before they were expanded.
+     */
+    public long getSubsetsDiscovered() {
+        return subsetsDiscovered;
+    }
+
+    public long getSubsetsExpanded() {
+        return subsetsExpanded;
+    }
+
+    public long getClosuresComputed() {
+        return closuresComputed;
+    }
+
+    /**
+     * Closed successor sets served from the compiled NFA instead of being recomputed.
+     */
+    public long getClosureLookups() {
+        return closureLookups;
+    }
+
+    public int getPeakSubsetSize() {
+        return peakSubsetSize;
+    }
+
+    public int getPeakWorklistDepth() {
+        return peakWorklistDepth;
+    }
+
+    /**
+     * Worklist depth after every 1024th expanded subset.
+     */
+    public List<Integer> getWorklistDepthSamples() {
+        return worklistDepthSamples;
+    }
+
+    public Map<String, Long> getPhaseNanos() {
+        return phaseNanos;
+    }
+
+    public double getConversionTransitionsPerSecond() {
+        return conversionNanos == 0 ? 0 : conversionTransitions * 1e9 / conversionNanos;
+    }
+
+    public long getInputs() {
+        return inputs.sum();
+    }
+
+    public long getAcceptedInputs() {
+        return acceptedInputs.sum();
+    }
+
+    public double getMatchTransitionsPerSecond() {
+        long nanos = matchNanos.get();
+        return nanos == 0 ? 0 : matchedCharacters.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Subsets discovered: " + subsetsDiscovered + "\n"
+                + "Subsets expanded: " + subsetsExpanded + "\n"
+                + "Peak subset size: " + peakSubsetSize + "\n"
+                + "Peak worklist depth: " + peakWorklistDepth + "\n"
+                + "Epsilon closures computed: " + closuresComputed + "\n"
+                + "Closure lookups: " + closureLookups + "\n"
+                + "Phases (ns): " + phaseNanos + "\n"
+                + "Conversion transitions/s: " + (long) getConversionTransitionsPerSecond() + "\n"
+                + "Inputs: " + getInputs() + " (accepted " + getAcceptedInputs() + ")\n"
+                + "Match transitions/s: " + (long) getMatchTransitionsPerSecond();
+    }
+
+}
@@ -0,0 +1,301 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.security.InvalidAlgorithmParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * Benchmarks for construction, conversion and matching.
+ * Usage: java Benchmark [benchmark name prefix]
+ * Every benchmark is run over a range of generated automata and prints one
+ * line per size, so the lines of one benchmark form its scaling curve:
+ * throughput, time per operation, bytes allocated per operation and GC time.
+ * This is a quick run with fixed warmup and measurement times and no
+ * forking, the same benchmarks run under JMH with {@code mvn -Pjmh package},
+ * see jmh/AutomatonBenchmark.java.
+ */
+public class Benchmark {
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long MEASURE_NANOS = 2_000_000_000L;
+
+    private static final int[] NTH_SYMBOL_SIZES = { 4, 8, 12, 16 };
+    private static final int[] LINEAR_SIZES = { 16, 256, 4096, 32768 };
+    private static final int[] INPUT_LENGTHS = { 1 << 10, 1 << 16, 1 << 20 };
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        String filter = args.length > 0 ? args[0] : "";
+        System.out.printf("%-24s %10s %10s %14s %14s %12s %8s%n",
+                "benchmark", "size", "input", "ops/s", "ns/op", "bytes/op", "gc ms");
+
+        for (int n : LINEAR_SIZES) {
+            run(filter, "NFA.createFrom", n, 0);
+        }
+        for (int n : LINEAR_SIZES) {
+            run(filter, "DFA.createFrom", n, 0);
+        }
+        for (int n : NTH_SYMBOL_SIZES) {
+            run(filter, "DFA.convertFrom", n, 0);
+        }
+        for (int n : LINEAR_SIZES) {
+            run(filter, "NFA.epsilonClosure", n, 0);
+        }
+        for (int n : new int[] { 4, 64, 1024 }) {
+            for (int length : INPUT_LENGTHS) {
+                run(filter, "NFA.input", n, length);
+            }
+        }
+        for (int n : NTH_SYMBOL_SIZES) {
+            for (int length : INPUT_LENGTHS) {
+                run(filter, "DFA.input", n, length);
+            }
+        }
+        for (int length : INPUT_LENGTHS) {
+            run(filter, "DFA.input.decided", 3, length);
+            run(filter, "DFA.decisionPoint", 3, length);
+        }
+        for (int n : new int[] { 2, 4, 6, 8 }) {
+            for (int length : INPUT_LENGTHS) {
+                for (String name : new String[] { "Bytecode.DFA.input", "Bytecode.random", "Bytecode.skewed",
+                                                  "Bytecode.table.random", "Bytecode.table.skewed" }) {
+                    run(filter, name, n, length);
+                }
+            }
+        }
+        for (int n : new int[] { 1 << 10, 1 << 18, 1 << 22 }) {
+            for (String name : new String[] { "Interleaved.sequential", "Interleaved.lanes1", "Interleaved.lanes4",
+                                              "Interleaved.lanes8", "Interleaved.lanes16" }) {
+                run(filter, name, n, 1 << 20);
+            }
+        }
+    }
+
+    /**
+     * Builds the fixture of a benchmark, the returned operation is what is measured.
+     * Also used by the JMH benchmarks in jmh/, which cannot refer to classes
+     * of the default package directly.
+     * @param size n of the "n-th symbol from the end" NFA, or a number of states
+     *             of a random DFA or an epsilon chain
+     * @param inputLength total length of the input, 0 if there is none
+     */
+    public static Callable<?> operation(String name, int size, int inputLength) throws Exception {
+        String input = randomInput(inputLength, new Random(inputLength));
+        switch (name) {
+            case "NFA.createFrom": {
+                String[][][] table = nthSymbolFromEndTable(size);
+                return () -> nthSymbolFromEnd(table, size);
+            }
+            case "DFA.createFrom": {
+                String[][] table = randomDFATable(size, 2, new Random(size));
+                return () -> DFA.createFrom(table, "q0", new String[] { "q0" });
+            }
+            case "DFA.convertFrom": {
+                NFA nfa = nthSymbolFromEnd(nthSymbolFromEndTable(size), size);
+                return () -> DFA.convertFrom(nfa);
+            }
+            case "NFA.epsilonClosure": {
+                NFA nfa = epsilonChain(size);
+                NState state = nfa.getStartState();
+                return () -> nfa.epsilonClosure(state);
+            }
+            case "NFA.input": {
+                NFA nfa = nthSymbolFromEnd(nthSymbolFromEndTable(size), size);
+                return () -> nfa.input(input);
+            }
+            case "DFA.input":
+            case "Bytecode.DFA.input": {
+                DFA dfa = DFA.convertFrom(nthSymbolFromEnd(nthSymbolFromEndTable(size), size));
+                return () -> dfa.input(input);
+            }
+            case "DFA.input.decided": {
+                DFA dfa = firstSymbolDFA();
+                return () -> dfa.input(input);
+            }
+            case "DFA.decisionPoint": {
+                DFA dfa = firstSymbolDFA();
+                return () -> dfa.decisionPoint(input);
+            }
+            case "Bytecode.random":
+            case "Bytecode.skewed": {
+                Recognizer bytecode = BytecodeCompiler.compile(DFA.convertFrom(nthSymbolFromEnd(nthSymbolFromEndTable(size), size)));
+                String text = name.endsWith("skewed") ? skewedInput(inputLength, new Random(inputLength)) : input;
+                return () -> bytecode.matches(text);
+            }
+            case "Bytecode.table.random":
+            case "Bytecode.table.skewed": {
+                Recognizer table = BytecodeCompiler.interpret(DFA.convertFrom(nthSymbolFromEnd(nthSymbolFromEndTable(size), size)));
+                String text = name.endsWith("skewed") ? skewedInput(inputLength, new Random(inputLength)) : input;
+                return () -> table.matches(text);
+            }
+            default:
+                break;
+        }
+
+        if (name.startsWith("Interleaved.")) {
+            CompiledDFA dfa = randomCompiledDFA(size, new Random(size));
+            List<String> inputs = new ArrayList<>();
+            Random random = new Random(size);
+            for (int i = 0 ; i < inputLength / 1024 ; ++i) {
+                inputs.add(randomInput(1024, random));
+            }
+            if (name.equals("Interleaved.sequential")) {
+                return () -> {
+                    int accepted = 0;
+                    for (String text : inputs) {
+                        accepted += dfa.matches(text) ? 1 : 0;
+                    }
+                    return accepted;
+                };
+            }
+            if (name.startsWith("Interleaved.lanes")) {
+                InterleavedMatcher matcher = new InterleavedMatcher(dfa, Integer.parseInt(name.substring("Interleaved.lanes".length())));
+                return () -> matcher.matchInterleaved(inputs);
+            }
+        }
+        throw new IllegalArgumentException("Unknown benchmark: " + name);
+    }
+
+    /**
+     * Accepts the inputs starting with 1, every input is decided by its first symbol.
+     */
+    private static DFA firstSymbolDFA() throws InvalidAlgorithmParameterException {
+        return DFA.createFrom(new String[][] { { "", "0", "1" }, { "q0", "q1", "q2" }, { "q1", "q1", "q1" }, { "q2", "q2", "q2" } },
+                "q0", new String[] { "q2" });
+    }
+
+    /**
+     * NFA for "the n-th symbol from the end is 1" over {0, 1}.
+     * It has n + 1 states, its DFA has 2^n.
+     */
+    public static String[][][] nthSymbolFromEndTable(int n) {
+        String[][][] table = new String[n + 2][][];
+        table[0] = new String[][] { {}, {"0"}, {"1"} };
+        table[1] = new String[][] { {"p0"}, {"p0"}, {"p0", "p1"} };
+        for (int i = 1 ; i < n ; ++i) {
+            String next = "p" + (i + 1);
+            table[i + 1] = new String[][] { {"p" + i}, {next}, {next} };
+        }
+        table[n + 1] = new String[][] { {"p" + n}, {}, {} };
+        return table;
+    }
+
+    public static NFA nthSymbolFromEnd(String[][][] table, int n) throws InvalidAlgorithmParameterException {
+        return NFA.createFrom(table, "p0", new String[] { "p" + n });
+    }
+
+    /**
+     * States p0 to p(n-1) linked by epsilon transitions, each of them going
+     * back to p0 on 0, so the closure of p0 holds all n states.
+     */
+    public static NFA epsilonChain(int n) throws InvalidAlgorithmParameterException {
+        NFABuilder builder = new NFABuilder();
+        for (int i = 0 ; i < n ; ++i) {
+            builder.state("p" + i);
+        }
+        for (int i = 0 ; i < n ; ++i) {
+            builder.addTransition(i, "0", 0);
+            if (i + 1 < n) {
+                builder.addTransition(i, null, i + 1);
+            }
+        }
+        return builder.setStartState(0).addAcceptState(n - 1).build();
+    }
+
+    /**
+     * Complete DFA table with uniformly random transitions.
+     */
+    public static String[][] randomDFATable(int stateCount, int symbolCount, Random random) {
+        String[][] table = new String[stateCount + 1][symbolCount + 1];
+        for (int c = 1 ; c <= symbolCount ; ++c) {
+            table[0][c] = String.valueOf((char) ('0' + c - 1));
+        }
+        for (int r = 1 ; r <= stateCount ; ++r) {
+            table[r][0] = "q" + (r - 1);
+            for (int c = 1 ; c <= symbolCount ; ++c) {
+                table[r][c] = "q" + random.nextInt(stateCount);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Complete table form over {0, 1} with uniformly random transitions,
+     * built without DStates so it can be larger than the cache.
+     */
+    public static CompiledDFA randomCompiledDFA(int stateCount, Random random) {
+        int[] transitions = new int[2 * stateCount];
+        boolean[] accepting = new boolean[stateCount];
+        for (int i = 0 ; i < transitions.length ; ++i) {
+            transitions[i] = random.nextInt(stateCount);
+        }
+        for (int s = 0 ; s < stateCount ; ++s) {
+            accepting[s] = random.nextBoolean();
+        }
+        return new CompiledDFA(new SymbolTable(Arrays.asList("0", "1")), transitions, accepting, 0, new String[stateCount]);
+    }
+
+    public static String randomInput(int length, Random random) {
+        char[] input = new char[length];
+        for (int i = 0 ; i < length ; ++i) {
+            input[i] = random.nextBoolean() ? '1' : '0';
+        }
+        return new String(input);
+    }
+
+    /**
+     * Mostly '0', so the next state is easy to predict.
+     */
+    public static String skewedInput(int length, Random random) {
+        char[] input = new char[length];
+        for (int i = 0 ; i < length ; ++i) {
+            input[i] = random.nextInt(64) == 0 ? '1' : '0';
+        }
+        return new String(input);
+    }
+
+    private static void run(String filter, String name, int size, int inputLength) throws Exception {
+        if (!name.startsWith(filter)) {
+            return;
+        }
+
+        Callable<?> operation = operation(name, size, inputLength);
+        measure(operation, WARMUP_NANOS);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long gcBefore = gcMillis();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long operations = measure(operation, MEASURE_NANOS);
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        long gc = gcMillis() - gcBefore;
+
+        System.out.printf("%-24s %10d %10d %14.1f %14.1f %12d %8d%n",
+                name, size, inputLength,
+                operations * 1e9 / elapsed, (double) elapsed / operations, allocated / operations, gc);
+    }
+
+    private static long measure(Callable<?> operation, long nanos) throws Exception {
+        long operations = 0;
+        long end = System.nanoTime() + nanos;
+        do {
+            sink = operation.call();
+            ++operations;
+        } while (System.nanoTime() < end);
+        return operations;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+}
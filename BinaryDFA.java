@@ -0,0 +1,286 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiled DFA in a flat binary layout that is matched in place, for example
+ * straight from a memory-mapped file.
+ *
+ * Layout, little endian, every section starts 8-byte aligned:
+ * header (64 bytes): magic, version, flags (state names, partial), state count, symbol class count,
+ * start state, char table length, symbol count, then the offsets of the
+ * transition table, accept bitset, symbol list and name list;
+ * char table: int per char, symbol class or -1;
+ * transition table: int per state and symbol class, row-major, -1 for none;
+ * accept bitset: long words;
+ * symbols: int symbol class followed by the string;
+ * strings: int length (-1 for null) followed by UTF-16 chars.
+ */
+public final class BinaryDFA implements Recognizer, TransitionTable {
+    public static final int MAGIC = 0x31414644;
+    public static final int VERSION = 2;
+    public static final int FLAG_STATE_NAMES = 1;
+    public static final int FLAG_PARTIAL = 2;
+
+    private static final int HEADER_SIZE = 64;
+
+    private final ByteBuffer buffer;
+    private final int stateCount;
+    private final int width;
+    private final int startState;
+    private final int charTableLength;
+    private final int symbolCount;
+    private final int flags;
+    private final int transitionsOffset;
+    private final int acceptOffset;
+    private final int symbolsOffset;
+    private final int namesOffset;
+
+    private BinaryDFA(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (this.buffer.capacity() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled DFA.");
+        }
+        if (this.buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported compiled DFA version " + this.buffer.getInt(4) + ".");
+        }
+
+        this.flags = this.buffer.getInt(8);
+        this.stateCount = this.buffer.getInt(12);
+        this.width = this.buffer.getInt(16);
+        this.startState = this.buffer.getInt(20);
+        this.charTableLength = this.buffer.getInt(24);
+        this.symbolCount = this.buffer.getInt(28);
+        this.transitionsOffset = (int) this.buffer.getLong(32);
+        this.acceptOffset = (int) this.buffer.getLong(40);
+        this.symbolsOffset = (int) this.buffer.getLong(48);
+        this.namesOffset = (int) this.buffer.getLong(56);
+
+        if (stateCount <= 0 || width < 0 || symbolCount < width || startState < 0 || startState >= stateCount || charTableLength < 0
+                || transitionsOffset != align(HEADER_SIZE + 4L * charTableLength)
+                || acceptOffset != align(transitionsOffset + 4L * stateCount * width)
+                || symbolsOffset != align(acceptOffset + 8L * ((stateCount + 63) >>> 6))
+                || namesOffset < symbolsOffset || namesOffset > this.buffer.capacity()) {
+            throw new IOException("Corrupt compiled DFA header.");
+        }
+    }
+
+    public static BinaryDFA wrap(ByteBuffer buffer) throws IOException {
+        return new BinaryDFA(buffer);
+    }
+
+    /**
+     * Maps the file read-only, only the header is read here.
+     */
+    public static BinaryDFA map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new BinaryDFA(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static void write(CompiledDFA dfa, Path path, boolean withStateNames) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, sizeOf(dfa, withStateNames));
+            write(dfa, buffer, withStateNames);
+            buffer.force();
+        }
+    }
+
+    public static ByteBuffer toByteBuffer(CompiledDFA dfa, boolean withStateNames) {
+        ByteBuffer buffer = ByteBuffer.allocate(checkedSize(sizeOf(dfa, withStateNames)));
+        write(dfa, buffer, withStateNames);
+        return buffer;
+    }
+
+    private static long sizeOf(CompiledDFA dfa, boolean withStateNames) {
+        SymbolTable symbolTable = dfa.getSymbolTable();
+        long size = align(HEADER_SIZE + 4L * symbolTable.getCharLimit());
+        size = align(size + 4L * dfa.getStateCount() * symbolTable.getClassCount());
+        size = align(size + 8L * ((dfa.getStateCount() + 63) >>> 6));
+        for (int symbol = 0 ; symbol < symbolTable.size() ; ++symbol) {
+            size += 8 + 2L * symbolTable.getSymbol(symbol).length();
+        }
+        size = align(size);
+        if (withStateNames) {
+            for (int s = 0 ; s < dfa.getStateCount() ; ++s) {
+                String name = dfa.getStateName(s);
+                size += 4 + (name == null ? 0 : 2L * name.length());
+            }
+        }
+        return checkedSize(size);
+    }
+
+    private static int checkedSize(long size) {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Compiled DFA is too large for one buffer.");
+        }
+        return (int) size;
+    }
+
+    private static void write(CompiledDFA dfa, ByteBuffer buffer, boolean withStateNames) {
+        SymbolTable symbolTable = dfa.getSymbolTable();
+        int stateCount = dfa.getStateCount();
+        int width = symbolTable.getClassCount();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        int transitionsOffset = align(HEADER_SIZE + 4L * symbolTable.getCharLimit());
+        int acceptOffset = align(transitionsOffset + 4L * stateCount * width);
+        int symbolsOffset = align(acceptOffset + 8L * ((stateCount + 63) >>> 6));
+
+        buffer.position(HEADER_SIZE);
+        for (int c = 0 ; c < symbolTable.getCharLimit() ; ++c) {
+            buffer.putInt(symbolTable.classOf((char) c));
+        }
+
+        buffer.position(transitionsOffset);
+        for (int s = 0 ; s < stateCount ; ++s) {
+            for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+                buffer.putInt(dfa.getNextState(s, symbolClass));
+            }
+        }
+
+        buffer.position(acceptOffset);
+        for (int w = 0 ; w < (stateCount + 63) >>> 6 ; ++w) {
+            long word = 0;
+            for (int s = w << 6 ; s < Math.min(stateCount, (w + 1) << 6) ; ++s) {
+                if (dfa.isAccepting(s)) {
+                    word |= 1L << s;
+                }
+            }
+            buffer.putLong(word);
+        }
+
+        buffer.position(symbolsOffset);
+        for (int symbol = 0 ; symbol < symbolTable.size() ; ++symbol) {
+            buffer.putInt(symbolTable.classOf(symbol));
+            putString(buffer, symbolTable.getSymbol(symbol));
+        }
+        int namesOffset = align(buffer.position());
+        buffer.position(namesOffset);
+        if (withStateNames) {
+            for (int s = 0 ; s < stateCount ; ++s) {
+                putString(buffer, dfa.getStateName(s));
+            }
+        }
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, (withStateNames ? FLAG_STATE_NAMES : 0) | (dfa.isPartial() ? FLAG_PARTIAL : 0));
+        buffer.putInt(12, stateCount);
+        buffer.putInt(16, width);
+        buffer.putInt(20, dfa.getStartState());
+        buffer.putInt(24, symbolTable.getCharLimit());
+        buffer.putInt(28, symbolTable.size());
+        buffer.putLong(32, transitionsOffset);
+        buffer.putLong(40, acceptOffset);
+        buffer.putLong(48, symbolsOffset);
+        buffer.putLong(56, namesOffset);
+        buffer.rewind();
+    }
+
+    private static void putString(ByteBuffer buffer, String string) {
+        if (string == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(string.length());
+        for (int i = 0 ; i < string.length() ; ++i) {
+            buffer.putChar(string.charAt(i));
+        }
+    }
+
+    private static int align(long offset) {
+        return (int) ((offset + 7) & ~7L);
+    }
+
+    @Override
+    public int step(int state, char c) {
+        if (c >= charTableLength) {
+            return CompiledDFA.NO_STATE;
+        }
+        int symbolClass = buffer.getInt(HEADER_SIZE + 4 * c);
+        if (symbolClass == SymbolTable.NO_SYMBOL) {
+            return CompiledDFA.NO_STATE;
+        }
+        return buffer.getInt(transitionsOffset + 4 * (state * width + symbolClass));
+    }
+
+    @Override
+    public boolean matches(CharSequence input) {
+        int state = startState;
+        for (int i = 0 ; i < input.length() && state != CompiledDFA.NO_STATE ; ++i) {
+            state = step(state, input.charAt(i));
+        }
+        return state != CompiledDFA.NO_STATE && isAccepting(state);
+    }
+
+    @Override
+    public boolean isAccepting(int state) {
+        return (buffer.getLong(acceptOffset + 8 * (state >>> 6)) & (1L << state)) != 0;
+    }
+
+    @Override
+    public int getStartState() {
+        return startState;
+    }
+
+    @Override
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Rebuilds the heap form, which is only needed to change or inspect the automaton.
+     */
+    public CompiledDFA toCompiledDFA() {
+        List<String> symbols = new ArrayList<>();
+        int[] classOfSymbol = new int[symbolCount];
+        int position = symbolsOffset;
+        for (int symbol = 0 ; symbol < symbolCount ; ++symbol) {
+            classOfSymbol[symbol] = buffer.getInt(position);
+            String string = getString(position + 4);
+            symbols.add(string);
+            position += 8 + 2 * string.length();
+        }
+
+        String[] stateNames = new String[stateCount];
+        if ((flags & FLAG_STATE_NAMES) != 0) {
+            position = namesOffset;
+            for (int s = 0 ; s < stateCount ; ++s) {
+                stateNames[s] = getString(position);
+                position += 4 + (stateNames[s] == null ? 0 : 2 * stateNames[s].length());
+            }
+        }
+
+        int[] transitions = new int[stateCount * width];
+        boolean[] accepting = new boolean[stateCount];
+        for (int s = 0 ; s < stateCount ; ++s) {
+            for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+                transitions[s * width + symbolClass] = buffer.getInt(transitionsOffset + 4 * (s * width + symbolClass));
+            }
+            accepting[s] = isAccepting(s);
+        }
+        return new CompiledDFA(new SymbolTable(new SymbolTable(symbols), classOfSymbol), transitions, accepting, startState, stateNames,
+                (flags & FLAG_PARTIAL) != 0);
+    }
+
+    private String getString(int position) {
+        int length = buffer.getInt(position);
+        if (length < 0) {
+            return null;
+        }
+        char[] chars = new char[length];
+        for (int i = 0 ; i < length ; ++i) {
+            chars[i] = buffer.getChar(position + 4 + 2 * i);
+        }
+        return new String(chars);
+    }
+
+}
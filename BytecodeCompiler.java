@@ -0,0 +1,361 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiles a DFA to a hidden class whose matches(CharSequence) is one loop
+ * with a switch per state, the transitions are inlined as lookupswitch cases
+ * so no table is read while matching. The branches follow the input: this
+ * beats a table when the next state is predictable and loses on random
+ * input, see the Bytecode benchmarks.
+ * HotSpot does not JIT methods above 8000 bytes of bytecode, larger DFAs get
+ * the flat table interpreter of {@link #interpret(DFA)} instead.
+ * Only single char symbols can be matched, any other char rejects the input.
+ * The DFA is read once, later changes to its states are not seen.
+ * The class file is written by hand in version 49, which needs no stack map frames.
+ */
+public final class BytecodeCompiler {
+    public static final int DEFAULT_MAX_STATES = 256;
+
+    private static final int MAX_CODE_LENGTH = 8000;
+    private static final int CLASS_VERSION = 49;
+
+    private static final int LENGTH_METHOD = 16;
+    private static final int CHAR_AT_METHOD = 20;
+
+    private BytecodeCompiler() {
+    }
+
+    public static Recognizer compile(DFA dfa) {
+        return compile(dfa, DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Falls back to {@link #interpret(DFA)} above {@code maxStates} states or
+     * when the method would be too large to be JIT compiled.
+     */
+    public static Recognizer compile(DFA dfa, int maxStates) {
+        List<DState> order = new ArrayList<>();
+        HashMap<DState, Integer> indexOfState = new HashMap<>();
+        order.add(dfa.getStartState());
+        indexOfState.put(dfa.getStartState(), 0);
+        for (int i = 0 ; i < order.size() && order.size() <= maxStates ; ++i) {
+            for (DState nextState : order.get(i).getNextStates()) {
+                if (!indexOfState.containsKey(nextState)) {
+                    indexOfState.put(nextState, order.size());
+                    order.add(nextState);
+                }
+            }
+        }
+        if (order.size() > maxStates) {
+            return interpret(dfa);
+        }
+
+        int[][] keys = new int[order.size()][];
+        int[][] targets = new int[order.size()][];
+        for (int s = 0 ; s < order.size() ; ++s) {
+            DState state = order.get(s);
+            List<String> symbols = new ArrayList<>();
+            for (String symbol : state.getSymbols()) {
+                if (symbol != null && symbol.length() == 1 && state.getNextState(symbol) != null) {
+                    symbols.add(symbol);
+                }
+            }
+            symbols.sort(null);
+            keys[s] = new int[symbols.size()];
+            targets[s] = new int[symbols.size()];
+            for (int i = 0 ; i < symbols.size() ; ++i) {
+                keys[s][i] = symbols.get(i).charAt(0);
+                targets[s][i] = indexOfState.get(state.getNextState(symbols.get(i)));
+            }
+        }
+
+        Set<DState> acceptStates = dfa.getAcceptStates();
+        boolean[] accepting = new boolean[order.size()];
+        for (int s = 0 ; s < order.size() ; ++s) {
+            accepting[s] = acceptStates.contains(order.get(s));
+        }
+
+        byte[] matchesCode = matchesCode(keys, targets, accepting);
+        if (matchesCode.length > MAX_CODE_LENGTH) {
+            return interpret(dfa);
+        }
+
+        try {
+            byte[] classFile = classFile(matchesCode);
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            return (Recognizer) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to define the matcher class.", e);
+        }
+    }
+
+    /**
+     * Matches on a flat table, see {@link RowTable}.
+     */
+    public static Recognizer interpret(DFA dfa) {
+        return new RowTable(dfa.compile());
+    }
+
+    /**
+     * One loop with a tableswitch on the state and a lookupswitch on the char
+     * per state. Jumping straight from state block to state block would make
+     * the control flow irreducible, which C2 does not optimize.
+     * Locals: 0 this, 1 input, 2 index, 3 length, 4 state.
+     */
+    private static byte[] matchesCode(int[][] keys, int[][] targets, boolean[] accepting) {
+        Code code = new Code();
+        int loop = code.newLabel();
+        int end = code.newLabel();
+        int reject = code.newLabel();
+        int accept = code.newLabel();
+        int[] stateLabels = new int[keys.length];
+        int[] moveLabels = new int[keys.length];
+        for (int s = 0 ; s < keys.length ; ++s) {
+            stateLabels[s] = code.newLabel();
+            moveLabels[s] = code.newLabel();
+        }
+
+        code.op(0x2b);                              // aload_1
+        code.op(0xb9).u2(LENGTH_METHOD).op(1).op(0);    // invokeinterface length
+        code.op(0x3e);                              // istore_3
+        code.op(0x03);                              // iconst_0
+        code.op(0x3d);                              // istore_2
+        code.op(0x03);                              // iconst_0
+        code.op(0x36).op(4);                        // istore 4
+
+        code.mark(loop);
+        code.op(0x1c);                              // iload_2
+        code.op(0x1d);                              // iload_3
+        code.jump(0xa2, end);                       // if_icmpge
+        code.op(0x15).op(4);                        // iload 4
+        code.tableSwitch(reject, stateLabels);
+
+        for (int s = 0 ; s < keys.length ; ++s) {
+            code.mark(stateLabels[s]);
+            code.op(0x2b);                          // aload_1
+            code.op(0x1c);                          // iload_2
+            code.op(0xb9).u2(CHAR_AT_METHOD).op(2).op(0);   // invokeinterface charAt
+            code.op(0x84).op(2).op(1);              // iinc 2 1
+            int[] labels = new int[keys[s].length];
+            for (int i = 0 ; i < labels.length ; ++i) {
+                labels[i] = moveLabels[targets[s][i]];
+            }
+            code.lookupSwitch(reject, keys[s], labels);
+        }
+
+        for (int s = 0 ; s < keys.length ; ++s) {
+            code.mark(moveLabels[s]);
+            code.op(0x11).u2(s);                    // sipush
+            code.op(0x36).op(4);                    // istore 4
+            code.jump(0xa7, loop);                  // goto
+        }
+
+        int acceptCount = 0;
+        for (boolean acceptState : accepting) {
+            acceptCount += acceptState ? 1 : 0;
+        }
+        int[] acceptKeys = new int[acceptCount];
+        int[] acceptLabels = new int[acceptCount];
+        for (int s = 0, i = 0 ; s < keys.length ; ++s) {
+            if (accepting[s]) {
+                acceptKeys[i] = s;
+                acceptLabels[i++] = accept;
+            }
+        }
+        code.mark(end);
+        code.op(0x15).op(4);                        // iload 4
+        code.lookupSwitch(reject, acceptKeys, acceptLabels);
+        code.mark(accept);
+        code.op(0x04);                              // iconst_1
+        code.op(0xac);                              // ireturn
+        code.mark(reject);
+        code.op(0x03);                              // iconst_0
+        code.op(0xac);                              // ireturn
+        return code.toByteArray();
+    }
+
+    private static byte[] classFile(byte[] matchesCode) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(0xcafebabe);
+        out.writeShort(0);
+        out.writeShort(CLASS_VERSION);
+
+        out.writeShort(24);
+        utf8(out, "BytecodeDFA");                   // 1
+        constant(out, 7, 1);                        // 2 this class
+        utf8(out, "java/lang/Object");              // 3
+        constant(out, 7, 3);                        // 4 super class
+        utf8(out, "Recognizer");                    // 5
+        constant(out, 7, 5);                        // 6
+        utf8(out, "<init>");                        // 7
+        utf8(out, "()V");                           // 8
+        constant(out, 12, 7, 8);                    // 9
+        constant(out, 10, 4, 9);                    // 10 Object.<init>
+        utf8(out, "java/lang/CharSequence");        // 11
+        constant(out, 7, 11);                       // 12
+        utf8(out, "length");                        // 13
+        utf8(out, "()I");                           // 14
+        constant(out, 12, 13, 14);                  // 15
+        constant(out, 11, 12, 15);                  // 16 CharSequence.length
+        utf8(out, "charAt");                        // 17
+        utf8(out, "(I)C");                          // 18
+        constant(out, 12, 17, 18);                  // 19
+        constant(out, 11, 12, 19);                  // 20 CharSequence.charAt
+        utf8(out, "matches");                       // 21
+        utf8(out, "(Ljava/lang/CharSequence;)Z");   // 22
+        utf8(out, "Code");                          // 23
+
+        out.writeShort(0x0031);                     // public final super
+        out.writeShort(2);
+        out.writeShort(4);
+        out.writeShort(1);
+        out.writeShort(6);
+        out.writeShort(0);
+
+        out.writeShort(2);
+        method(out, 7, 8, 1, 1, new byte[] { 0x2a, (byte) 0xb7, 0, 10, (byte) 0xb1 });
+        method(out, 21, 22, 2, 5, matchesCode);
+
+        out.writeShort(0);
+        return bytes.toByteArray();
+    }
+
+    private static void utf8(DataOutputStream out, String string) throws IOException {
+        out.writeByte(1);
+        out.writeUTF(string);
+    }
+
+    private static void constant(DataOutputStream out, int tag, int... indices) throws IOException {
+        out.writeByte(tag);
+        for (int index : indices) {
+            out.writeShort(index);
+        }
+    }
+
+    private static void method(DataOutputStream out, int name, int descriptor, int maxStack, int maxLocals, byte[] code)
+            throws IOException {
+        out.writeShort(0x0001);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(23);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    /**
+     * Bytecode buffer with labels, branch offsets are patched in when the
+     * code is complete.
+     */
+    private static final class Code {
+        private byte[] bytes = new byte[256];
+        private int length;
+        private int[] labelOffsets = new int[16];
+        private int labelCount;
+        private final List<int[]> fixups = new ArrayList<>();
+
+        int newLabel() {
+            if (labelCount == labelOffsets.length) {
+                labelOffsets = Arrays.copyOf(labelOffsets, 2 * labelCount);
+            }
+            return labelCount++;
+        }
+
+        void mark(int label) {
+            labelOffsets[label] = length;
+        }
+
+        Code op(int b) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2 * length);
+            }
+            bytes[length++] = (byte) b;
+            return this;
+        }
+
+        Code u2(int value) {
+            return op(value >>> 8).op(value);
+        }
+
+        Code u4(int value) {
+            return u2(value >>> 16).u2(value);
+        }
+
+        /**
+         * Fixup: offset of the field, offset of the instruction, label, width.
+         */
+        private void reference(int instruction, int label, int width) {
+            fixups.add(new int[] { length, instruction, label, width });
+            for (int i = 0 ; i < width ; ++i) {
+                op(0);
+            }
+        }
+
+        void jump(int opcode, int label) {
+            int instruction = length;
+            op(opcode);
+            reference(instruction, label, 2);
+        }
+
+        private int align(int opcode) {
+            int instruction = length;
+            op(opcode);
+            while ((length & 3) != 0) {
+                op(0);
+            }
+            return instruction;
+        }
+
+        /**
+         * Jumps to {@code labels[i]} for the value i.
+         */
+        void tableSwitch(int defaultLabel, int[] labels) {
+            int instruction = align(0xaa);
+            reference(instruction, defaultLabel, 4);
+            u4(0);
+            u4(labels.length - 1);
+            for (int label : labels) {
+                reference(instruction, label, 4);
+            }
+        }
+
+        /**
+         * {@code keys} must be sorted.
+         */
+        void lookupSwitch(int defaultLabel, int[] keys, int[] labels) {
+            int instruction = align(0xab);
+            reference(instruction, defaultLabel, 4);
+            u4(keys.length);
+            for (int i = 0 ; i < keys.length ; ++i) {
+                u4(keys[i]);
+                reference(instruction, labels[i], 4);
+            }
+        }
+
+        byte[] toByteArray() {
+            for (int[] fixup : fixups) {
+                int offset = labelOffsets[fixup[2]] - fixup[1];
+                for (int i = 0 ; i < fixup[3] ; ++i) {
+                    bytes[fixup[0] + i] = (byte) (offset >>> (8 * (fixup[3] - 1 - i)));
+                }
+            }
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Table form of a DFA.
+ * States are numbered 0..n-1 in breadth-first order from the start state,
+ * transitions are stored row-major in one flat array (state x symbol class).
+ * Symbols that lead to the same state from every state share one class.
+ * In a partial table a missing transition rejects, otherwise it is an error
+ * to {@link DFA#input(String)}; {@link #matches(CharSequence)} rejects either way.
+ * Never modified after construction, so it can be shared between threads;
+ * the state analysis is computed on first use.
+ */
+public final class CompiledDFA implements Recognizer, TransitionTable {
+    public static final int NO_STATE = -1;
+
+    private final SymbolTable symbolTable;
+    private final int stateCount;
+    private final int[] transitions;
+    private final boolean[] accepting;
+    private final int startState;
+    private final String[] stateNames;
+    private final boolean partial;
+    private volatile StateAnalysis analysis;
+
+    public CompiledDFA(SymbolTable symbolTable, int[] transitions, boolean[] accepting, int startState, String[] stateNames) {
+        this(symbolTable, transitions, accepting, startState, stateNames, false);
+    }
+
+    public CompiledDFA(SymbolTable symbolTable, int[] transitions, boolean[] accepting, int startState, String[] stateNames,
+                       boolean partial) {
+        this.symbolTable = symbolTable;
+        this.stateCount = accepting.length;
+        this.transitions = transitions;
+        this.accepting = accepting;
+        this.startState = startState;
+        this.stateNames = stateNames;
+        this.partial = partial;
+    }
+
+    /**
+     * Only states reachable from the start state are kept. Successors are
+     * visited in symbol order, so the numbering only depends on the automaton.
+     */
+    public static CompiledDFA compile(DState startState, Set<DState> acceptStates) {
+        return compile(startState, acceptStates, Collections.emptySet(), false, new ArrayList<>());
+    }
+
+    /**
+     * @param symbols symbols to keep in the symbol table even if no reachable state has them
+     * @param order filled with the DState of every state, in state order
+     */
+    static CompiledDFA compile(DState startState, Set<DState> acceptStates, Collection<String> symbols, boolean partial,
+                               List<DState> order) {
+        Set<DState> reachable = new HashSet<>();
+        List<DState> queue = new ArrayList<>();
+        Set<String> alphabet = new HashSet<>(symbols);
+
+        reachable.add(startState);
+        queue.add(startState);
+        for (int i = 0 ; i < queue.size() ; ++i) {
+            DState state = queue.get(i);
+            for (String symbol : state.getSymbols()) {
+                DState nextState = state.getNextState(symbol);
+                if (symbol != null && nextState != null) {
+                    alphabet.add(symbol);
+                    if (reachable.add(nextState)) {
+                        queue.add(nextState);
+                    }
+                }
+            }
+        }
+
+        SymbolTable symbolTable = new SymbolTable(alphabet);
+        int symbolCount = symbolTable.size();
+        HashMap<DState, Integer> indexOfState = new HashMap<>();
+        order.add(startState);
+        indexOfState.put(startState, 0);
+        for (int i = 0 ; i < order.size() ; ++i) {
+            DState state = order.get(i);
+            for (int symbol = 0 ; symbol < symbolCount ; ++symbol) {
+                DState nextState = state.getNextState(symbolTable.getSymbol(symbol));
+                if (nextState != null && !indexOfState.containsKey(nextState)) {
+                    indexOfState.put(nextState, order.size());
+                    order.add(nextState);
+                }
+            }
+        }
+
+        int[] symbolTransitions = new int[order.size() * symbolCount];
+        boolean[] accepting = new boolean[order.size()];
+        String[] stateNames = new String[order.size()];
+
+        Arrays.fill(symbolTransitions, NO_STATE);
+        for (int s = 0 ; s < order.size() ; ++s) {
+            DState state = order.get(s);
+            for (String symbol : state.getSymbols()) {
+                DState nextState = state.getNextState(symbol);
+                if (symbol != null && nextState != null) {
+                    symbolTransitions[s * symbolCount + symbolTable.indexOf(symbol)] = indexOfState.get(nextState);
+                }
+            }
+            accepting[s] = acceptStates.contains(state);
+            stateNames[s] = state.getStateName();
+        }
+
+        return withClasses(symbolTable, symbolTransitions, accepting, stateNames, partial);
+    }
+
+    /**
+     * Builds the table from one column per symbol, merging symbols with equal
+     * columns into classes. State 0 is the start state.
+     */
+    static CompiledDFA withClasses(SymbolTable symbols, int[] symbolTransitions, boolean[] accepting, String[] stateNames,
+                                   boolean partial) {
+        int symbolCount = symbols.size();
+        int stateCount = accepting.length;
+        long[] columnHashes = new long[symbolCount];
+        for (int s = 0 ; s < stateCount ; ++s) {
+            for (int symbol = 0 ; symbol < symbolCount ; ++symbol) {
+                columnHashes[symbol] = columnHashes[symbol] * 31 + symbolTransitions[s * symbolCount + symbol];
+            }
+        }
+
+        SymbolTable symbolTable = symbols.withClasses(columnHashes, (symbol, otherSymbol) -> {
+            for (int i = 0 ; i < symbolTransitions.length ; i += symbolCount) {
+                if (symbolTransitions[i + symbol] != symbolTransitions[i + otherSymbol]) {
+                    return false;
+                }
+            }
+            return true;
+        });
+        int width = symbolTable.getClassCount();
+        int[] transitions = new int[stateCount * width];
+        for (int s = 0 ; s < stateCount ; ++s) {
+            for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+                int symbol = symbolTable.getSymbolsOfClass(symbolClass)[0];
+                transitions[s * width + symbolClass] = symbolTransitions[s * symbolCount + symbol];
+            }
+        }
+
+        return new CompiledDFA(symbolTable, transitions, accepting, 0, stateNames, partial);
+    }
+
+    @Override
+    public int step(int state, char c) {
+        int symbolClass = symbolTable.classOf(c);
+        if (symbolClass == SymbolTable.NO_SYMBOL) {
+            return NO_STATE;
+        }
+        return transitions[state * symbolTable.getClassCount() + symbolClass];
+    }
+
+    @Override
+    public int run(int state, CharSequence input) {
+        int width = symbolTable.getClassCount();
+        for (int i = 0 ; i < input.length() && state != NO_STATE ; ++i) {
+            int symbolClass = symbolTable.classOf(input.charAt(i));
+            state = symbolClass == SymbolTable.NO_SYMBOL ? NO_STATE : transitions[state * width + symbolClass];
+        }
+        return state;
+    }
+
+    @Override
+    public int run(int state, char[] input, int offset, int length) {
+        int width = symbolTable.getClassCount();
+        for (int i = offset ; i < offset + length && state != NO_STATE ; ++i) {
+            int symbolClass = symbolTable.classOf(input[i]);
+            state = symbolClass == SymbolTable.NO_SYMBOL ? NO_STATE : transitions[state * width + symbolClass];
+        }
+        return state;
+    }
+
+    @Override
+    public boolean matches(CharSequence input) {
+        int state = run(startState, input);
+        return state != NO_STATE && accepting[state];
+    }
+
+    public boolean matches(char[] input, int offset, int length) {
+        int state = run(startState, input, offset, length);
+        return state != NO_STATE && accepting[state];
+    }
+
+    @Override
+    public boolean isAccepting(int state) {
+        return accepting[state];
+    }
+
+    public int getNextState(int state, int symbolClass) {
+        return transitions[state * symbolTable.getClassCount() + symbolClass];
+    }
+
+    @Override
+    public int getStartState() {
+        return startState;
+    }
+
+    @Override
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Whether a missing transition rejects the input instead of being an error,
+     * as in the results of trimming, minimization and products.
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * Dead and accept-absorbing states, see {@link StateAnalysis}.
+     */
+    public StateAnalysis analyze() {
+        StateAnalysis stateAnalysis = analysis;
+        if (stateAnalysis == null) {
+            stateAnalysis = StateAnalysis.analyze(this);
+            analysis = stateAnalysis;
+        }
+        return stateAnalysis;
+    }
+
+    public String getStateName(int state) {
+        return stateNames[state];
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+}
@@ -0,0 +1,386 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Index form of an NFA.
+ * States are numbered 0..n-1 in creation order, so subsets of states can be
+ * handled as bitsets (see {@link StateSet}).
+ * For every state and symbol class the closed successor set is precomputed, so
+ * simulation and subset construction only OR together precomputed sets.
+ * Symbols with the same successors in every state share one class.
+ * Never modified after construction, so it can be shared between threads.
+ */
+public final class CompiledNFA implements Recognizer {
+    private static final int[] NO_STATES = new int[0];
+
+    private final NState[] states;
+    private final HashMap<NState, Integer> indexOfState;
+    private final SymbolTable symbolTable;
+    private final int startState;
+    private final long[] acceptMask;
+    private final int[][] closures;
+    private final long[][] closureMasks;
+    private final int[][][] stepStates;
+    private final long[][][] stepMasks;
+    private final long version;
+
+    private CompiledNFA(NState[] states, NState startState, Set<NState> acceptStates, long version) {
+        this.states = states;
+        this.version = version;
+        this.indexOfState = new HashMap<>();
+        for (int s = 0 ; s < states.length ; ++s) {
+            indexOfState.put(states[s], s);
+        }
+
+        Set<String> alphabet = new HashSet<>();
+        for (NState state : states) {
+            alphabet.addAll(state.getSymbols());
+        }
+        SymbolTable symbols = new SymbolTable(alphabet);
+        this.startState = indexOfState.get(startState);
+
+        this.acceptMask = StateSet.newWords(states.length);
+        for (NState acceptState : acceptStates) {
+            Integer index = indexOfState.get(acceptState);
+            if (index != null) {
+                StateSet.add(acceptMask, index);
+            }
+        }
+
+        int[][][] successors = new int[states.length][symbols.size()][];
+        long[] columnHashes = new long[symbols.size()];
+        for (int s = 0 ; s < states.length ; ++s) {
+            for (int symbol = 0 ; symbol < symbols.size() ; ++symbol) {
+                successors[s][symbol] = indicesOf(states[s].getNextStates(symbols.getSymbol(symbol)));
+                columnHashes[symbol] = columnHashes[symbol] * 31 + Arrays.hashCode(successors[s][symbol]);
+            }
+        }
+        this.symbolTable = symbols.withClasses(columnHashes, (symbol, otherSymbol) -> {
+            for (int[][] row : successors) {
+                if (!Arrays.equals(row[symbol], row[otherSymbol])) {
+                    return false;
+                }
+            }
+            return true;
+        });
+
+        this.closures = new int[states.length][];
+        this.closureMasks = new long[states.length][];
+        computeClosures();
+
+        this.stepStates = new int[states.length][symbolTable.getClassCount()][];
+        this.stepMasks = new long[states.length][symbolTable.getClassCount()][];
+        computeSteps(successors);
+    }
+
+    public static CompiledNFA compile(NFA nfa) {
+        List<NState> order = new ArrayList<>();
+        Set<NState> seen = new HashSet<>();
+
+        order.add(nfa.getStartState());
+        seen.add(nfa.getStartState());
+        for (NState state : nfa.getStates()) {
+            if (seen.add(state)) {
+                order.add(state);
+            }
+        }
+        for (int i = 0 ; i < order.size() ; ++i) {
+            for (NState nextState : order.get(i).getNextStates()) {
+                if (seen.add(nextState)) {
+                    order.add(nextState);
+                }
+            }
+        }
+
+        order.sort(Comparator.comparingInt(NState::getStateID));
+        NState[] states = order.toArray(new NState[0]);
+        return new CompiledNFA(states, nfa.getStartState(), nfa.getAcceptStates(), versionOf(states));
+    }
+
+    private int[] indicesOf(Set<NState> nextStates) {
+        if (nextStates == null || nextStates.isEmpty()) {
+            return NO_STATES;
+        }
+
+        int[] indices = new int[nextStates.size()];
+        int i = 0;
+        for (NState nextState : nextStates) {
+            indices[i++] = indexOfState.get(nextState);
+        }
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    /**
+     * Tarjan's algorithm over the epsilon edges, without recursion.
+     * Components are completed in reverse topological order, so the closures of
+     * everything a component reaches are known when it is completed.
+     * All states of a component share one closure, stored as a sorted index
+     * array or, once that would take more space, as a bitset.
+     */
+    private void computeClosures() {
+        int n = states.length;
+        int[][] epsilonSuccessors = new int[n][];
+        for (int s = 0 ; s < n ; ++s) {
+            epsilonSuccessors[s] = indicesOf(states[s].getNextStates(null));
+        }
+
+        int[] order = new int[n];
+        int[] low = new int[n];
+        int[] nextEdge = new int[n];
+        int[] callStack = new int[n];
+        int[] componentStack = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] mark = new int[n];
+        int[] members = new int[n];
+        int counter = 0;
+
+        for (int root = 0 ; root < n ; ++root) {
+            if (order[root] != 0) {
+                continue;
+            }
+
+            int callTop = 0;
+            int componentTop = 0;
+            callStack[callTop++] = root;
+            order[root] = low[root] = ++counter;
+            componentStack[componentTop++] = root;
+            onStack[root] = true;
+
+            while (callTop > 0) {
+                int s = callStack[callTop - 1];
+                if (nextEdge[s] < epsilonSuccessors[s].length) {
+                    int t = epsilonSuccessors[s][nextEdge[s]++];
+                    if (order[t] == 0) {
+                        order[t] = low[t] = ++counter;
+                        componentStack[componentTop++] = t;
+                        onStack[t] = true;
+                        callStack[callTop++] = t;
+                    } else if (onStack[t]) {
+                        low[s] = Math.min(low[s], order[t]);
+                    }
+                    continue;
+                }
+
+                --callTop;
+                if (callTop > 0) {
+                    int parent = callStack[callTop - 1];
+                    low[parent] = Math.min(low[parent], low[s]);
+                }
+                if (low[s] != order[s]) {
+                    continue;
+                }
+
+                int size = 0;
+                int bottom = componentTop;
+                do {
+                    int t = componentStack[--bottom];
+                    onStack[t] = false;
+                    mark[t] = order[s];
+                    members[size++] = t;
+                } while (componentStack[bottom] != s);
+
+                long[] closureMask = null;
+                for (int i = bottom ; i < componentTop ; ++i) {
+                    for (int t : epsilonSuccessors[componentStack[i]]) {
+                        if (closures[t] == null && closureMasks[t] == null) {
+                            continue;
+                        }
+                        if (closureMasks[t] != null || size + closures[t].length > n / 32) {
+                            if (closureMask == null) {
+                                closureMask = StateSet.newWords(n);
+                            }
+                            addClosure(t, closureMask);
+                            continue;
+                        }
+                        for (int u : closures[t]) {
+                            if (mark[u] != order[s]) {
+                                mark[u] = order[s];
+                                members[size++] = u;
+                            }
+                        }
+                    }
+                }
+
+                int[] closure = null;
+                if (closureMask != null) {
+                    for (int i = 0 ; i < size ; ++i) {
+                        StateSet.add(closureMask, members[i]);
+                    }
+                } else {
+                    closure = Arrays.copyOf(members, size);
+                    Arrays.sort(closure);
+                }
+                for (int i = bottom ; i < componentTop ; ++i) {
+                    closures[componentStack[i]] = closure;
+                    closureMasks[componentStack[i]] = closureMask;
+                }
+                componentTop = bottom;
+            }
+        }
+    }
+
+    /**
+     * Same storage rule as the closures: index array while small, bitset once dense.
+     * A single successor shares the closure of that successor.
+     */
+    private void computeSteps(int[][][] successors) {
+        int n = states.length;
+        long[] merged = StateSet.newWords(n);
+
+        for (int s = 0 ; s < n ; ++s) {
+            for (int symbolClass = 0 ; symbolClass < symbolTable.getClassCount() ; ++symbolClass) {
+                int[] nextStates = successors[s][symbolTable.getSymbolsOfClass(symbolClass)[0]];
+                if (nextStates.length == 0) {
+                    stepStates[s][symbolClass] = NO_STATES;
+                    continue;
+                }
+                if (nextStates.length == 1) {
+                    stepStates[s][symbolClass] = closures[nextStates[0]];
+                    stepMasks[s][symbolClass] = closureMasks[nextStates[0]];
+                    continue;
+                }
+
+                Arrays.fill(merged, 0);
+                for (int nextState : nextStates) {
+                    addClosure(nextState, merged);
+                }
+
+                int size = 0;
+                for (long word : merged) {
+                    size += Long.bitCount(word);
+                }
+                if (size > n / 32) {
+                    stepMasks[s][symbolClass] = merged.clone();
+                } else {
+                    int[] indices = new int[size];
+                    int i = 0;
+                    for (int t = StateSet.nextMember(merged, 0) ; t >= 0 ; t = StateSet.nextMember(merged, t + 1)) {
+                        indices[i++] = t;
+                    }
+                    stepStates[s][symbolClass] = indices;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the epsilon closure of everything reachable from {@code from} by a
+     * symbol of class {@code symbolClass} to {@code to}.
+     */
+    public void step(long[] from, int symbolClass, long[] to) {
+        for (int w = 0 ; w < from.length ; ++w) {
+            long word = from[w];
+            while (word != 0) {
+                int s = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+
+                long[] mask = stepMasks[s][symbolClass];
+                if (mask != null) {
+                    for (int i = 0 ; i < to.length ; ++i) {
+                        to[i] |= mask[i];
+                    }
+                } else {
+                    for (int nextState : stepStates[s][symbolClass]) {
+                        to[nextState >>> 6] |= 1L << nextState;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Bit-parallel simulation: the active states are kept in two bitsets that
+     * are swapped per character, nothing is allocated inside the loop.
+     */
+    @Override
+    public boolean matches(CharSequence input) {
+        long[] current = StateSet.newWords(states.length);
+        addClosure(startState, current);
+        return matches(current, input, 0);
+    }
+
+    /**
+     * Continues a simulation from the closed set {@code current} at {@code offset}.
+     * {@code current} is used as working storage.
+     */
+    public boolean matches(long[] current, CharSequence input, int offset) {
+        long[] next = StateSet.newWords(states.length);
+
+        for (int i = offset ; i < input.length() ; ++i) {
+            int symbolClass = symbolTable.classOf(input.charAt(i));
+            if (symbolClass == SymbolTable.NO_SYMBOL) {
+                return false;
+            }
+
+            Arrays.fill(next, 0);
+            step(current, symbolClass, next);
+
+            long[] swap = current;
+            current = next;
+            next = swap;
+        }
+        return StateSet.intersects(current, acceptMask);
+    }
+
+    public void addClosure(int state, long[] to) {
+        if (closureMasks[state] != null) {
+            StateSet.addAll(to, closureMasks[state]);
+            return;
+        }
+        for (int closureState : closures[state]) {
+            StateSet.add(to, closureState);
+        }
+    }
+
+    public boolean isAccepting(long[] subset) {
+        return StateSet.intersects(subset, acceptMask);
+    }
+
+    public int indexOf(NState state) {
+        Integer index = indexOfState.get(state);
+        return index == null ? -1 : index;
+    }
+
+    public NState getState(int index) {
+        return states[index];
+    }
+
+    public int getStateCount() {
+        return states.length;
+    }
+
+    public int getWordCount() {
+        return acceptMask.length;
+    }
+
+    public int getStartState() {
+        return startState;
+    }
+
+    /**
+     * Whether none of the compiled states has changed since compilation.
+     * A transition to a state that is not compiled changes its source, which is.
+     */
+    public boolean isCurrent() {
+        return versionOf(states) == version;
+    }
+
+    private static long versionOf(NState[] states) {
+        long version = 0;
+        for (NState state : states) {
+            version += state.getVersion();
+        }
+        return version;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+}
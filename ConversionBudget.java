@@ -0,0 +1,60 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits for one subset construction, see {@link DFA#convertFrom(NFA, ConversionBudget)}.
+ * Every limit is off until it is set. Limits are checked before each subset
+ * is expanded, so the state limit can be passed by the subsets found while
+ * expanding the last one. The memory limit is checked against an estimate
+ * of the heap used by the subsets and DStates created so far.
+ * {@link #cancel()} may be called from any thread, the conversion stops at
+ * the next subset it expands. An interrupt of the converting thread counts
+ * as a cancellation, the interrupt flag is left set.
+ */
+public final class ConversionBudget {
+    private int maxStates = Integer.MAX_VALUE;
+    private long maxMemory = Long.MAX_VALUE;
+    private long timeoutNanos = Long.MAX_VALUE;
+    private volatile boolean cancelled;
+
+    public ConversionBudget setMaxStates(int maxStates) {
+        if (maxStates < 1) {
+            throw new IllegalArgumentException("At least one state is needed.");
+        }
+        this.maxStates = maxStates;
+        return this;
+    }
+
+    public ConversionBudget setMaxMemory(long bytes) {
+        this.maxMemory = bytes;
+        return this;
+    }
+
+    /**
+     * Measured from the start of each conversion.
+     */
+    public ConversionBudget setTimeout(long timeout, TimeUnit unit) {
+        this.timeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || Thread.currentThread().isInterrupted();
+    }
+
+    public int getMaxStates() {
+        return maxStates;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+}
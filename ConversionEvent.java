@@ -0,0 +1,28 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for subset constructions that take longer than the threshold.
+ */
+@Name("nfatodfa.Conversion")
+@Label("NFA to DFA Conversion")
+@Category("Automata")
+@Description("Subset construction of a DFA from an NFA")
+@Threshold("100 ms")
+public class ConversionEvent extends Event {
+    @Label("NFA States")
+    public int nfaStates;
+
+    @Label("Symbols")
+    public int symbols;
+
+    @Label("DFA States")
+    public int dfaStates;
+
+    @Label("Peak Subset Size")
+    public int peakSubsetSize;
+}
@@ -0,0 +1,23 @@
+/**
+ * Receives progress of a subset construction, see {@link DFA#convertFrom(NFA, ConversionListener)}.
+ * Without a listener none of these values are computed.
+ */
+public interface ConversionListener {
+
+    /**
+     * @param closures number of epsilon closures computed, 0 if the compiled NFA was cached
+     */
+    default void onNFACompiled(int nfaStates, int closures, long nanos) {}
+
+    /**
+     * Called once for every subset, in the order the subsets were discovered.
+     * @param closureLookups precomputed closed successor sets read to expand the subset
+     * @param worklistDepth subsets discovered but not yet expanded
+     */
+    default void onSubsetExpanded(int index, int subsetSize, int closureLookups, int worklistDepth) {}
+
+    default void onPhase(String phase, long nanos) {}
+
+    default void onConversionFinished(int dfaStates, long transitions, long nanos) {}
+
+}
@@ -0,0 +1,91 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Outcome of a subset construction under a {@link ConversionBudget}.
+ * When a limit was hit the DFA is partial: the subsets found but not yet
+ * expanded have no transitions. Matching still gives exact answers, it runs
+ * on the expanded part and continues on the NFA from the first state that
+ * was not expanded, like {@link NFA#input(String)}.
+ * Never modified after construction, so it can be shared between threads.
+ */
+public final class ConversionResult implements Recognizer {
+
+    public enum Status {
+        COMPLETE, STATE_LIMIT, MEMORY_LIMIT, DEADLINE, CANCELLED
+    }
+
+    private final Status status;
+    private final DFA dfa;
+    private final CompiledNFA nfa;
+    private final StateSet[] subsets;
+    private final int[] transitions;
+    private final int expandedCount;
+    private final int startState;
+    private final boolean[] accepting;
+
+    ConversionResult(Status status, DFA dfa, CompiledNFA nfa, List<StateSet> subsets, int[] transitions,
+                     int expandedCount, int startState) {
+        this.status = status;
+        this.dfa = dfa;
+        this.nfa = nfa;
+        this.subsets = subsets.toArray(new StateSet[0]);
+        this.transitions = Arrays.copyOf(transitions, expandedCount * nfa.getSymbolTable().getClassCount());
+        this.expandedCount = expandedCount;
+        this.startState = startState;
+        this.accepting = new boolean[this.subsets.length];
+        for (int i = 0 ; i < accepting.length ; ++i) {
+            accepting[i] = nfa.isAccepting(this.subsets[i].getWords());
+        }
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isComplete() {
+        return status == Status.COMPLETE;
+    }
+
+    /**
+     * The complete DFA, or the partial one if a limit was hit. Its states that
+     * were not expanded have no transitions, so {@link DFA#input(String)}
+     * throws for an input that leaves one of them, as for any incomplete DFA.
+     * Use {@link #matches(CharSequence)} for exact answers.
+     */
+    public DFA getDFA() {
+        return dfa;
+    }
+
+    public int getStateCount() {
+        return subsets.length;
+    }
+
+    public int getExpandedCount() {
+        return expandedCount;
+    }
+
+    @Override
+    public boolean matches(CharSequence input) {
+        SymbolTable symbolTable = nfa.getSymbolTable();
+        int width = symbolTable.getClassCount();
+        int state = startState;
+
+        for (int i = 0 ; i < input.length() ; ++i) {
+            if (state >= expandedCount) {
+                return nfa.matches(subsets[state].getWords().clone(), input, i);
+            }
+            int symbolClass = symbolTable.classOf(input.charAt(i));
+            if (symbolClass == SymbolTable.NO_SYMBOL) {
+                return false;
+            }
+            state = transitions[state * width + symbolClass];
+        }
+        return accepting[state];
+    }
+
+    public boolean input(String inputString) {
+        return matches(inputString == null ? "" : inputString);
+    }
+
+}
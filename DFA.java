@@ -1,13 +1,14 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.security.InvalidAlgorithmParameterException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
 
 public class DFA {
     private Set<DState> states;
@@ -15,6 +16,9 @@ public class DFA {
     private HashMap<String, DState> transitionFunctions;
     private DState startState;
     private Set<DState> acceptStates;
+    private volatile Compiled compiled;
+    private volatile long checkedModificationCount = -1;
+    private volatile MatchListener matchListener;
 
     public DFA(Set<DState> states, DState startState, Set<DState> acceptStates) {
         this.states = new HashSet<>();
@@ -30,268 +34,535 @@ public class DFA {
                 this.states.add(nextState);
 
                 String symbol = state.findSymbolToState(nextState);
-                this.alphabet.add(symbol);
                 appendToTransitionFunctions(symbol, nextState);
             }
+            this.alphabet.addAll(state.getSymbols());
         }
     }
 
+    /**
+     * Builds DStates for a table form, the table is kept as the compiled form
+     * and its symbols make up the alphabet.
+     */
+    public static DFA fromCompiled(CompiledDFA compiledDFA) {
+        SymbolTable symbolTable = compiledDFA.getSymbolTable();
+        DState[] dStates = new DState[compiledDFA.getStateCount()];
+        Set<DState> acceptStates = new HashSet<>();
+
+        for (int s = 0 ; s < dStates.length ; ++s) {
+            dStates[s] = new DState(compiledDFA.getStateName(s));
+            if (compiledDFA.isAccepting(s)) {
+                acceptStates.add(dStates[s]);
+            }
+        }
+        for (int s = 0 ; s < dStates.length ; ++s) {
+            for (int symbol = 0 ; symbol < symbolTable.size() ; ++symbol) {
+                int next = compiledDFA.getNextState(s, symbolTable.classOf(symbol));
+                if (next != CompiledDFA.NO_STATE) {
+                    dStates[s].putNextState(symbolTable.getSymbol(symbol), dStates[next]);
+                }
+            }
+        }
+
+        DFA dfa = new DFA(new HashSet<>(Arrays.asList(dStates)), dStates[compiledDFA.getStartState()], acceptStates);
+        for (int symbol = 0 ; symbol < symbolTable.size() ; ++symbol) {
+            dfa.alphabet.add(symbolTable.getSymbol(symbol));
+        }
+        dfa.compiled = new Compiled(compiledDFA, dStates);
+        return dfa;
+    }
+
     public void appendToTransitionFunctions(String symbol, DState state) {
         transitionFunctions.put(symbol, state);
     }
 
+    /**
+     * Stops stepping at the first decisive state, see {@link StateAnalysis},
+     * the rest of the input is only checked for invalid symbols. So the result
+     * and the exceptions are those of stepping through the whole input.
+     * A missing transition rejects if the compiled form is partial, such as
+     * after {@link #trim()}, and is an error otherwise.
+     */
     public boolean input(String inputString) throws InvalidAlgorithmParameterException {
-        DState currentState = startState;
+        MatchListener listener = matchListener;
+        CompiledDFA compiledDFA = compile();
+        long startTime = listener == null ? 0 : System.nanoTime();
+        StateAnalysis analysis = compiledDFA.analyze();
+        SymbolTable symbolTable = compiledDFA.getSymbolTable();
+        int currentState = compiledDFA.getStartState();
+        boolean accepted = false;
 
         if (inputString != null) {
-            for (char c : inputString.toCharArray()) {
-                currentState = currentState.walk(String.valueOf(c));
+            int i = 0;
+            for ( ; i < inputString.length() && !analysis.isDecisive(currentState) ; ++i) {
+                currentState = nextState(compiledDFA, symbolTable, currentState, inputString.charAt(i));
+                if (currentState == CompiledDFA.NO_STATE) {
+                    break;
+                }
+            }
+            for ( ; i < inputString.length() ; ++i) {
+                if (symbolTable.classOf(inputString.charAt(i)) == SymbolTable.NO_SYMBOL) {
+                    throw new InvalidAlgorithmParameterException("Invalid symbol or transition function is incomplete.");
+                }
             }
         }
-        
-        if (acceptStates.contains(currentState)) {
-            return true;
+
+        if (currentState != CompiledDFA.NO_STATE) {
+            accepted = compiledDFA.isAccepting(currentState);
+        }
+        if (listener != null) {
+            listener.onInput(inputString == null ? 0 : inputString.length(), accepted, System.nanoTime() - startTime);
         }
-        return false;
+        return accepted;
     }
 
     /**
-     * Head of row is symbol.
-     * Head of column is state.
-     * @throws InvalidAlgorithmParameterException
+     * Length of the shortest prefix of the input after which no continuation
+     * can change the outcome, or -1 if the outcome depends on the whole input.
+     * Null is the empty input, as in {@link #input(String)}. The input after
+     * that point is not read.
+     * @throws InvalidAlgorithmParameterException on an invalid symbol or missing transition before that point
      */
-    public static DFA createFrom(String[][] tableOfFunctionTransitions, String startStateStr, String[] acceptStatesStr) throws InvalidAlgorithmParameterException {
-        DState startState = null;
-        Set<DState> acceptStates = new HashSet<>();
-        Set<DState> states = new HashSet<>();
-
-        for (int r = 1 ; r < tableOfFunctionTransitions.length ; ++r) {
-            DState state = findState(states, tableOfFunctionTransitions[r][0]);
-            if (state == null) {
-                state = new DState(tableOfFunctionTransitions[r][0]);
-                states.add(state);
+    public int decisionPoint(String inputString) throws InvalidAlgorithmParameterException {
+        if (inputString == null) {
+            inputString = "";
+        }
+        CompiledDFA compiledDFA = compile();
+        StateAnalysis analysis = compiledDFA.analyze();
+        SymbolTable symbolTable = compiledDFA.getSymbolTable();
+        int currentState = compiledDFA.getStartState();
+
+        for (int i = 0 ; i <= inputString.length() ; ++i) {
+            if (analysis.isDecisive(currentState)) {
+                return i;
             }
-
-            for (int c = 1 ; c < tableOfFunctionTransitions[r].length ; ++c) {
-                String stateName = tableOfFunctionTransitions[r][c];
-                DState selectedState = findState(states, stateName);
-                if (selectedState == null) {
-                    selectedState = new DState(stateName);
-                    states.add(selectedState);
+            if (i < inputString.length()) {
+                currentState = nextState(compiledDFA, symbolTable, currentState, inputString.charAt(i));
+                if (currentState == CompiledDFA.NO_STATE) {
+                    return i + 1;
                 }
-                state.putNextState(tableOfFunctionTransitions[0][c], selectedState);
             }
         }
+        return -1;
+    }
 
-        for (DState state : states) {
-            if (state.getStateName().equals(startStateStr)) {
-                startState = state;
-            }
-            if (Arrays.asList(acceptStatesStr).contains(state.getStateName())) {
-                acceptStates.add(state);
-            }
+    /**
+     * @return NO_STATE if a partial DFA rejects
+     */
+    private static int nextState(CompiledDFA compiledDFA, SymbolTable symbolTable, int state, char c) throws InvalidAlgorithmParameterException {
+        int symbolClass = symbolTable.classOf(c);
+        int next = symbolClass == SymbolTable.NO_SYMBOL ? CompiledDFA.NO_STATE : compiledDFA.getNextState(state, symbolClass);
+        if (next == CompiledDFA.NO_STATE && (symbolClass == SymbolTable.NO_SYMBOL || !compiledDFA.isPartial())) {
+            throw new InvalidAlgorithmParameterException("Invalid symbol or transition function is incomplete.");
         }
+        return next;
+    }
 
-        if (startState == null) {
-            throw new InvalidAlgorithmParameterException("No start state detected.");
-        } else if (acceptStates.isEmpty()) {
-            throw new InvalidAlgorithmParameterException("No accept state detected.");
+    /**
+     * Null removes the listener.
+     */
+    public void setMatchListener(MatchListener matchListener) {
+        this.matchListener = matchListener;
+    }
+
+    /**
+     * Recompiled whenever one of its reachable DStates has been changed since
+     * the last compilation, a partial form stays partial and keeps its symbols.
+     * The states are only compared when some DState anywhere has changed since
+     * the last call.
+     * The result is immutable and can be shared between threads.
+     */
+    public CompiledDFA compile() {
+        Compiled current = compiled;
+        long modificationCount = DState.getModificationCount();
+        if (current != null && modificationCount == checkedModificationCount) {
+            return current.table;
         }
+        if (current == null || !current.isCurrent()) {
+            current = compileStates(current != null && current.table.isPartial());
+            compiled = current;
+        }
+        checkedModificationCount = modificationCount;
+        return current.table;
+    }
 
-        return new DFA(states, startState, acceptStates);
+    private Compiled compileStates(boolean partial) {
+        List<DState> order = new ArrayList<>();
+        CompiledDFA table = CompiledDFA.compile(startState, acceptStates, partial ? alphabet : Collections.emptySet(), partial, order);
+        return new Compiled(table, order.toArray(new DState[0]));
     }
 
+    /**
+     * Recompiles after the start or accept states were changed, which the
+     * versions of the DStates do not show.
+     */
+    void statesChanged() {
+        Compiled current = compiled;
+        compiled = current != null && current.table.isPartial() ? compileStates(true) : null;
+    }
 
-    private static DState findState(Set<DState> states, String stateName) {
-        for (DState state : states) {
-            if (state.getStateName().equals(stateName)) {
-                return state;
-            }
+    void setStartState(DState startState) {
+        this.startState = startState;
+    }
+
+    /**
+     * Adds a state that DStates of this DFA point to, for {@link IncrementalDFA}.
+     * Call {@link #statesChanged()} once the update is done.
+     */
+    void addState(DState state, boolean accepting) {
+        states.add(state);
+        if (accepting) {
+            acceptStates.add(state);
         }
-        return null;
     }
 
-    public static DFA convertFrom(NFA nfa) {
-        List<Set<NState>> currentStates = new ArrayList<>();
+    void removeState(DState state) {
+        states.remove(state);
+        acceptStates.remove(state);
+    }
 
-        Set<NState> startStateSet = new HashSet<>();
-        startStateSet.add(nfa.getStartState());
-        currentStates.add(startStateSet);
+    void addSymbol(String symbol) {
+        alphabet.add(symbol);
+    }
 
-        Map<Vector<Object>, Set<NState>> transitionFunctions = new HashMap<>();
-        Set<NState> nonnormalizedStartState = new HashSet<>();
+    public Matcher matcher() {
+        return new Matcher(compile());
+    }
 
-        for (int i = 0 ; i < currentStates.size() ; ++i) {
-            Set<NState> epsilonStates = new HashSet<>();
-            for (NState state : currentStates.get(i)) {
-                epsilonStates.addAll(nfa.epsilonClosure(state));
-            }
+    /**
+     * Matches batches of inputs with {@code lanes} inputs in flight per thread,
+     * see {@link InterleavedMatcher}.
+     */
+    public InterleavedMatcher interleavedMatcher(int lanes) {
+        return new InterleavedMatcher(compile(), lanes);
+    }
 
-            if (i == 0) {
-                nonnormalizedStartState = epsilonStates;
-            }
+    /**
+     * Leftmost-longest search for occurrences inside a text, see {@link Searcher}.
+     */
+    public Searcher searcher() {
+        return new Searcher(compile());
+    }
+
+    /**
+     * Hopcroft minimization of the reachable part, see {@link DFAMinimizer}.
+     * Returns a new DFA, this one is left unchanged.
+     */
+    public DFA minimize() {
+        return fromCompiled(DFAMinimizer.minimize(compile()));
+    }
 
-            for (String symbol : nfa.getAlphabet()) {
-                if (symbol == null) continue;
+    /**
+     * Drops the states that are unreachable or from which no accept state is
+     * reachable, such as the empty subset of {@link #convertFrom(NFA)}.
+     * Transitions to them become missing, the compiled form is partial so
+     * they reject in {@link #input(String)}. The alphabet is kept.
+     * Returns a new DFA, this one is left unchanged.
+     */
+    public DFA trim() {
+        return fromCompiled(compile().analyze().trim());
+    }
 
-                Set<NState> walkedStates = new HashSet<>();
-                for (NState state : epsilonStates) {
-                    walkedStates.addAll(state.walk(symbol));
-                }
-                for (NState walkedState : walkedStates) {
-                    walkedStates.addAll(nfa.epsilonClosure(walkedState));
-                }
+    /**
+     * Boolean operations build the reachable part of the product of the
+     * compiled forms, see {@link DFAProduct}. Both DFAs are left unchanged.
+     */
+    public DFA union(DFA other) {
+        return fromCompiled(DFAProduct.union(compile(), other.compile()));
+    }
+
+    public DFA intersect(DFA other) {
+        return fromCompiled(DFAProduct.intersect(compile(), other.compile()));
+    }
+
+    public DFA difference(DFA other) {
+        return fromCompiled(DFAProduct.difference(compile(), other.compile()));
+    }
 
-                Vector<Object> d = new Vector<>();
-                d.add(epsilonStates);
-                d.add(symbol);
-                transitionFunctions.put(d, walkedStates);
+    /**
+     * Accepts exactly the inputs over this alphabet that this DFA rejects.
+     */
+    public DFA complement() {
+        return fromCompiled(DFAProduct.complement(compile()));
+    }
 
-                if (!walkedStates.isEmpty()) {
-                    if (!contains(currentStates, walkedStates)) {
-                        currentStates.add(walkedStates);
-                    }
+    /**
+     * Head of row is symbol.
+     * Head of column is state.
+     * @throws InvalidAlgorithmParameterException
+     */
+    public static DFA createFrom(String[][] tableOfFunctionTransitions, String startStateStr, String[] acceptStatesStr) throws InvalidAlgorithmParameterException {
+        DFABuilder builder = new DFABuilder();
+
+        for (int r = 1 ; r < tableOfFunctionTransitions.length ; ++r) {
+            int state = builder.state(tableOfFunctionTransitions[r][0]);
+
+            for (int c = 1 ; c < tableOfFunctionTransitions[r].length ; ++c) {
+                if (tableOfFunctionTransitions[r][c] != null) {
+                    int selectedState = builder.state(tableOfFunctionTransitions[r][c]);
+                    builder.addTransition(state, tableOfFunctionTransitions[0][c], selectedState);
                 }
             }
         }
 
-        Set<DState> states = new HashSet<>();
-        DState startState = new DState();
-        Set<DState> acceptStates = new HashSet<>();
-
-        DState emptySetState = new DState("{}");
-        for (String symbol : nfa.getAlphabet()) {
-            if (symbol == null) continue;
-            
-            emptySetState.putNextState(symbol, emptySetState);
+        int startState = builder.indexOf(startStateStr);
+        if (startState >= 0) {
+            builder.setStartState(startState);
         }
+        for (String acceptStateStr : acceptStatesStr) {
+            int acceptState = builder.indexOf(acceptStateStr);
+            if (acceptState >= 0) {
+                builder.addAcceptState(acceptState);
+            }
+        }
+        return builder.build();
+    }
 
-        states.add(emptySetState);
+    public static DFA convertFrom(NFA nfa) {
+        return convert(nfa, null, null, null);
+    }
 
-        for (Vector<Object> d : transitionFunctions.keySet()) {
-            Set<NState> fromStates = (Set<NState>)d.get(0);
-            String symbol = (String)d.get(1);
-            Set<NState> toStates = transitionFunctions.get(d);
+    /**
+     * Reports progress to {@code listener}, which may be null.
+     * Conversions above the threshold of {@link ConversionEvent} are also recorded by JFR.
+     */
+    public static DFA convertFrom(NFA nfa, ConversionListener listener) {
+        return convert(nfa, listener, null, null);
+    }
 
-            List<NState> fromStatesList = new ArrayList<>(fromStates);
-            fromStatesList.sort(new Comparator<NState>() {
+    /**
+     * Stops when a limit of the budget is hit instead of running until the
+     * heap is exhausted. The result tells which limit was hit and can still
+     * match inputs, continuing on the NFA where the DFA is incomplete.
+     */
+    public static ConversionResult convertFrom(NFA nfa, ConversionBudget budget) {
+        return convertFrom(nfa, null, budget);
+    }
 
-                @Override
-                public int compare(NState o1, NState o2) {
-                    return o2.getStateName().compareTo(o1.getStateName());
-                }
-                
-            });
+    public static ConversionResult convertFrom(NFA nfa, ConversionListener listener, ConversionBudget budget) {
+        ConversionResult[] result = new ConversionResult[1];
+        convert(nfa, listener, budget, result);
+        return result[0];
+    }
 
-            String newDStateName = "{";
-            for (NState fromState : fromStates) {
-                newDStateName += fromState.getStateName() + ", ";
+    /**
+     * The subset table and the ConversionResult are only built when
+     * {@code result} is given, its only element is then set to the result.
+     */
+    private static DFA convert(NFA nfa, ConversionListener listener, ConversionBudget budget, ConversionResult[] result) {
+        long deadline = budget == null ? 0 : System.nanoTime() + Math.min(budget.getTimeoutNanos(), Long.MAX_VALUE / 2);
+        ConversionEvent event = new ConversionEvent();
+        event.begin();
+        long startTime = listener == null ? 0 : System.nanoTime();
+        boolean cached = listener != null && nfa.isCompiled();
+
+        CompiledNFA compiledNFA = nfa.compile();
+        SymbolTable symbolTable = compiledNFA.getSymbolTable();
+        long exploreTime = 0;
+        if (listener != null) {
+            exploreTime = System.nanoTime();
+            listener.onNFACompiled(compiledNFA.getStateCount(), cached ? 0 : compiledNFA.getStateCount(), exploreTime - startTime);
+        }
+
+        HashMap<StateSet, Integer> indexOfSubset = new HashMap<>();
+        List<StateSet> subsets = new ArrayList<>();
+        List<DState> dStates = new ArrayList<>();
+        Set<DState> acceptStates = new HashSet<>();
+        int peakSubsetSize = 0;
+        boolean measureSubsets = listener != null || event.isEnabled();
+
+        StateSet emptySet = new StateSet(StateSet.newWords(compiledNFA.getStateCount()));
+        addSubset(compiledNFA, emptySet, indexOfSubset, subsets, dStates, acceptStates);
+        long[] startStates = StateSet.newWords(compiledNFA.getStateCount());
+        compiledNFA.addClosure(compiledNFA.getStartState(), startStates);
+        StateSet startSet = new StateSet(startStates);
+        DState startState = dStates.get(addSubset(compiledNFA, startSet, indexOfSubset, subsets, dStates, acceptStates));
+
+        int width = symbolTable.getClassCount();
+        int[] transitions = result == null ? null : new int[16 * width];
+        long bytesPerState = 8L * startStates.length + 48L * symbolTable.size() + 4L * width + 256;
+        ConversionResult.Status status = ConversionResult.Status.COMPLETE;
+        int expandedCount = 0;
+
+        long[] walkedStates = StateSet.newWords(compiledNFA.getStateCount());
+        for (int i = 0 ; i < subsets.size() ; ++i) {
+            if (budget != null) {
+                status = checkBudget(budget, subsets.size(), subsets.size() * bytesPerState, deadline);
+                if (status != ConversionResult.Status.COMPLETE) {
+                    break;
+                }
             }
-            newDStateName = newDStateName.strip();
-            if (newDStateName.length() > 1) {
-                newDStateName = newDStateName.substring(0, newDStateName.length()-1) + "}";
-            } else {
-                newDStateName = "";
+            if (transitions != null && transitions.length < (i + 1) * width) {
+                transitions = Arrays.copyOf(transitions, Math.max(transitions.length * 2, (i + 1) * width));
             }
+            long[] fromStates = subsets.get(i).getWords();
 
-            DState newDState = find(states, newDStateName);
-            if (newDState == null) {
-                newDState = new DState(newDStateName);
-                states.add(newDState);
-            }
+            for (int symbolClass = 0 ; symbolClass < symbolTable.getClassCount() ; ++symbolClass) {
+                Arrays.fill(walkedStates, 0);
+                compiledNFA.step(fromStates, symbolClass, walkedStates);
 
-            String newNextDStateName = "{";
-            for (NState toState : toStates) {
-                newNextDStateName += toState.getStateName() + ", ";
-            }
-            newNextDStateName = newNextDStateName.strip();
-            if (newNextDStateName.length() > 1) {
-                newNextDStateName = newNextDStateName.substring(0, newNextDStateName.length()-1) + "}";
-            } else {
-                newNextDStateName = "";
+                Integer next = indexOfSubset.get(new StateSet(walkedStates));
+                if (next == null) {
+                    next = addSubset(compiledNFA, new StateSet(walkedStates.clone()), indexOfSubset, subsets, dStates, acceptStates);
+                }
+                for (int symbol : symbolTable.getSymbolsOfClass(symbolClass)) {
+                    dStates.get(i).putNextState(symbolTable.getSymbol(symbol), dStates.get(next));
+                }
+                if (transitions != null) {
+                    transitions[i * width + symbolClass] = next;
+                }
             }
+            expandedCount = i + 1;
 
-            DState newNextDState;
-            if (!newNextDStateName.equals("")) {
-                newNextDState = find(states, newNextDStateName);
-                if (newNextDState == null) {
-                    newNextDState = new DState(newNextDStateName);
-                    states.add(newNextDState);
+            if (measureSubsets) {
+                int subsetSize = subsets.get(i).size();
+                peakSubsetSize = Math.max(peakSubsetSize, subsetSize);
+                if (listener != null) {
+                    listener.onSubsetExpanded(i, subsetSize, subsetSize * symbolTable.getClassCount(), subsets.size() - i - 1);
                 }
-            } else {
-                newNextDState = emptySetState;
             }
+        }
 
-            newDState.putNextState(symbol, newNextDState);
+        long buildTime = listener == null ? 0 : System.nanoTime();
+        DFA dfa = new DFA(new HashSet<>(dStates), startState, acceptStates);
 
-            if (fromStates.containsAll(nonnormalizedStartState) && nonnormalizedStartState.containsAll(fromStates)) {
-                startState = newDState;
-            }
+        if (listener != null) {
+            long endTime = System.nanoTime();
+            listener.onPhase("explore subsets", buildTime - exploreTime);
+            listener.onPhase("build DFA", endTime - buildTime);
+            listener.onConversionFinished(dStates.size(), (long) dStates.size() * symbolTable.size(), endTime - startTime);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.nfaStates = compiledNFA.getStateCount();
+            event.symbols = symbolTable.size();
+            event.dfaStates = dStates.size();
+            event.peakSubsetSize = peakSubsetSize;
+            event.commit();
+        }
+        if (result != null) {
+            result[0] = new ConversionResult(status, dfa, compiledNFA, subsets, transitions, expandedCount, indexOfSubset.get(startSet));
+        }
+        return dfa;
+    }
 
-            for (State acceptState : nfa.getAcceptStates()) {
-                if (fromStates.contains(acceptState)) {
-                    acceptStates.add(newDState);
-                    break;
-                }
-            }
+    private static ConversionResult.Status checkBudget(ConversionBudget budget, int stateCount, long memory, long deadline) {
+        if (budget.isCancelled()) {
+            return ConversionResult.Status.CANCELLED;
+        } else if (stateCount > budget.getMaxStates()) {
+            return ConversionResult.Status.STATE_LIMIT;
+        } else if (memory > budget.getMaxMemory()) {
+            return ConversionResult.Status.MEMORY_LIMIT;
+        } else if (System.nanoTime() - deadline > 0) {
+            return ConversionResult.Status.DEADLINE;
         }
+        return ConversionResult.Status.COMPLETE;
+    }
+
+    /**
+     * Expands each breadth-first level of the subset construction on all cores,
+     * see {@link ParallelSubsetConstruction}.
+     */
+    public static DFA convertFromParallel(NFA nfa) {
+        return ParallelSubsetConstruction.convert(nfa, ForkJoinPool.commonPool());
+    }
 
-        return new DFA(states, startState, acceptStates);
-        
+    public static DFA convertFromParallel(NFA nfa, ForkJoinPool pool) {
+        return ParallelSubsetConstruction.convert(nfa, pool);
     }
 
-    private static boolean contains(List<Set<NState>> states, Set<NState> targets) {
-        for (Set<NState> statesSet : states) {
-            if (statesSet.containsAll(targets) && targets.containsAll(statesSet)) return true;
+    private static int addSubset(   CompiledNFA compiledNFA,
+                                    StateSet subset,
+                                    HashMap<StateSet, Integer> indexOfSubset,
+                                    List<StateSet> subsets,
+                                    List<DState> dStates,
+                                    Set<DState> acceptStates) {
+        Integer index = indexOfSubset.get(subset);
+        if (index != null) {
+            return index;
+        }
+
+        DState dState = new DState(subsetName(compiledNFA, subset));
+        index = subsets.size();
+        indexOfSubset.put(subset, index);
+        subsets.add(subset);
+        dStates.add(dState);
+        if (compiledNFA.isAccepting(subset.getWords())) {
+            acceptStates.add(dState);
         }
-        return false;
+        return index;
     }
 
-    private static DState find(Set<DState> states, String target) {
-        for (DState state : states) {
-            if (state.getStateName().equals(target)) return state;
+    static String subsetName(CompiledNFA compiledNFA, StateSet subset) {
+        StringBuilder name = new StringBuilder("{");
+        for (int s = subset.nextMember(0) ; s >= 0 ; s = subset.nextMember(s + 1)) {
+            if (name.length() > 1) {
+                name.append(", ");
+            }
+            name.append(compiledNFA.getState(s).getStateName());
         }
-        return null;
+        return name.append("}").toString();
+    }
+
+    /**
+     * Streams the DFA in the given format, see {@link AutomatonExporter}.
+     */
+    public void export(AutomatonExporter.Format format, Appendable out) throws IOException {
+        AutomatonExporter.export(this, format, out);
+    }
+
+    public Set<DState> getStates() {
+        return states;
+    }
+
+    public DState getStartState() {
+        return startState;
+    }
+
+    public Set<DState> getAcceptStates() {
+        return acceptStates;
+    }
+
+    public Set<String> getAlphabet() {
+        return alphabet;
     }
 
     @Override 
     public String toString() {
-        String result = "----- " + super.toString() + " -----\n";
+        StringBuilder result = new StringBuilder();
+        try {
+            export(AutomatonExporter.Format.TEXT, result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
 
-        result += "States: \n";
-        for (State state : states) {
-            if (state.getStateName() == "") {
-                result += "<e>";
-            }
-            result += state.getStateName() + "\n";
+    /**
+     * A table with the DStates it was compiled from and the sum of their versions.
+     */
+    private static final class Compiled {
+        private final CompiledDFA table;
+        private final DState[] states;
+        private final long version;
+
+        private Compiled(CompiledDFA table, DState[] states) {
+            this.table = table;
+            this.states = states;
+            this.version = versionOf(states);
         }
-        result += "\n";
 
-        result += "Alphabet: \n";
-        for (String symbol : alphabet) {
-            result += symbol + "\n";
+        private boolean isCurrent() {
+            return versionOf(states) == version;
         }
-        result += "\n";
 
-        result += "Transition Functions: \n";
-        for (DState state : states) {
-            for (String symbol : alphabet) {
-                result +=   "Move From: " + state.getStateName() +
-                            " To: " + state.getNextState(symbol).getStateName() +
-                            " By: " + symbol + "\n";
+        private static long versionOf(DState[] states) {
+            long version = 0;
+            for (DState state : states) {
+                version += state.getVersion();
             }
+            return version;
         }
-        result += "\n";
-
-        result += "Start state: " + startState.getStateName() + "\n";
-        result += "\n";
-        
-        result += "Accept state:\n";
-        for (State state : acceptStates) {
-            result += state.getStateName() + "\n";
-        }
-
-        return result.strip();
     }
 
 }
@@ -0,0 +1,141 @@
+import java.security.InvalidAlgorithmParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects states and transitions of a DFA by integer id. A later transition
+ * for the same state and symbol replaces an earlier one.
+ * {@link #build()} creates the DStates in one pass, {@link #compile()} goes
+ * straight to the table form without creating any DState.
+ */
+public final class DFABuilder extends AutomatonBuilder<DFABuilder> {
+
+    /**
+     * Every state is kept, also the ones that cannot be reached.
+     * @throws InvalidAlgorithmParameterException if no start or no accept state was set
+     */
+    public DFA build() throws InvalidAlgorithmParameterException {
+        checkStartAndAccept();
+
+        DState[] states = new DState[names.size()];
+        for (int s = 0 ; s < states.length ; ++s) {
+            states[s] = new DState(nameOf(s));
+        }
+        for (int t = 0 ; t < transitionCount ; ++t) {
+            states[from[t]].putNextState(symbols.get(symbolOf[t]), states[to[t]]);
+        }
+
+        Set<DState> accept = new HashSet<>();
+        for (int s = acceptStates.nextSetBit(0) ; s >= 0 ; s = acceptStates.nextSetBit(s + 1)) {
+            accept.add(states[s]);
+        }
+        return new DFA(new HashSet<>(Arrays.asList(states)), states[startState], accept);
+    }
+
+    /**
+     * Same table as {@code build().compile()}: only states reachable from the
+     * start state are kept, numbered breadth-first with successors in symbol
+     * order.
+     * @throws InvalidAlgorithmParameterException if no start or no accept state was set
+     */
+    public CompiledDFA compile() throws InvalidAlgorithmParameterException {
+        checkStartAndAccept();
+
+        int stateCount = names.size();
+        int[] rowStart = new int[stateCount + 1];
+        for (int t = 0 ; t < transitionCount ; ++t) {
+            if (symbols.get(symbolOf[t]) != null) {
+                ++rowStart[from[t] + 1];
+            }
+        }
+        for (int s = 0 ; s < stateCount ; ++s) {
+            rowStart[s + 1] += rowStart[s];
+        }
+        int[] rows = new int[rowStart[stateCount]];
+        int[] fill = Arrays.copyOf(rowStart, stateCount);
+        for (int t = 0 ; t < transitionCount ; ++t) {
+            if (symbols.get(symbolOf[t]) != null) {
+                rows[fill[from[t]]++] = t;
+            }
+        }
+
+        // Rows are in insertion order, keep only the last transition per symbol.
+        BitSet replaced = new BitSet();
+        int[] lastRow = new int[symbols.size()];
+        for (int s = 0 ; s < stateCount ; ++s) {
+            for (int j = rowStart[s + 1] - 1 ; j >= rowStart[s] ; --j) {
+                if (lastRow[symbolOf[rows[j]]] == s + 1) {
+                    replaced.set(j);
+                }
+                lastRow[symbolOf[rows[j]]] = s + 1;
+            }
+        }
+
+        boolean[] reachable = new boolean[stateCount];
+        int[] queue = new int[stateCount];
+        int count = 0;
+        BitSet used = new BitSet();
+        reachable[startState] = true;
+        queue[count++] = startState;
+        for (int i = 0 ; i < count ; ++i) {
+            for (int j = rowStart[queue[i]] ; j < rowStart[queue[i] + 1] ; ++j) {
+                if (!replaced.get(j)) {
+                    used.set(symbolOf[rows[j]]);
+                    if (!reachable[to[rows[j]]]) {
+                        reachable[to[rows[j]]] = true;
+                        queue[count++] = to[rows[j]];
+                    }
+                }
+            }
+        }
+
+        List<String> alphabet = new ArrayList<>();
+        for (int symbol = used.nextSetBit(0) ; symbol >= 0 ; symbol = used.nextSetBit(symbol + 1)) {
+            alphabet.add(symbols.get(symbol));
+        }
+        SymbolTable symbolTable = new SymbolTable(alphabet);
+        int[] columnOf = new int[symbols.size()];
+        for (int symbol = used.nextSetBit(0) ; symbol >= 0 ; symbol = used.nextSetBit(symbol + 1)) {
+            columnOf[symbol] = symbolTable.indexOf(symbols.get(symbol));
+        }
+
+        int width = symbolTable.size();
+        int[] newIndex = new int[stateCount];
+        Arrays.fill(newIndex, -1);
+        int[] order = new int[count];
+        int[] row = new int[width];
+        int[] symbolTransitions = new int[count * width];
+        boolean[] accepting = new boolean[count];
+        String[] stateNames = new String[count];
+        int numbered = 0;
+        newIndex[startState] = numbered;
+        order[numbered++] = startState;
+        for (int i = 0 ; i < numbered ; ++i) {
+            Arrays.fill(row, -1);
+            for (int j = rowStart[order[i]] ; j < rowStart[order[i] + 1] ; ++j) {
+                if (!replaced.get(j)) {
+                    row[columnOf[symbolOf[rows[j]]]] = to[rows[j]];
+                }
+            }
+            for (int symbol = 0 ; symbol < width ; ++symbol) {
+                if (row[symbol] == -1) {
+                    symbolTransitions[i * width + symbol] = CompiledDFA.NO_STATE;
+                } else {
+                    if (newIndex[row[symbol]] == -1) {
+                        newIndex[row[symbol]] = numbered;
+                        order[numbered++] = row[symbol];
+                    }
+                    symbolTransitions[i * width + symbol] = newIndex[row[symbol]];
+                }
+            }
+            accepting[i] = acceptStates.get(order[i]);
+            stateNames[i] = nameOf(order[i]);
+        }
+        return CompiledDFA.withClasses(symbolTable, symbolTransitions, accepting, stateNames, false);
+    }
+
+}
@@ -0,0 +1,244 @@
+import java.util.Arrays;
+
+/**
+ * Hopcroft's partition refinement on the table form of a DFA.
+ * Missing transitions go to an implicit dead state, which is dropped again
+ * from the result unless real states are equivalent to it, so the result is
+ * partial: a missing transition rejects.
+ * Blocks are numbered breadth-first from the start block and named after
+ * their first member, so the result only depends on the input automaton.
+ */
+public final class DFAMinimizer {
+    private final CompiledDFA dfa;
+    private final int width;
+    private final int stateCount;
+    private final int deadState;
+
+    private final int[] elements;
+    private final int[] location;
+    private final int[] blockOf;
+    private final int[] blockStart;
+    private final int[] blockEnd;
+    private final int[] markedCount;
+    private int blockCount;
+
+    private final int[] pending;
+    private final boolean[] isPending;
+    private int pendingCount;
+
+    private DFAMinimizer(CompiledDFA dfa) {
+        this.dfa = dfa;
+        this.width = dfa.getSymbolTable().getClassCount();
+
+        boolean complete = true;
+        for (int s = 0 ; s < dfa.getStateCount() && complete ; ++s) {
+            for (int symbol = 0 ; symbol < width ; ++symbol) {
+                if (dfa.getNextState(s, symbol) == CompiledDFA.NO_STATE) {
+                    complete = false;
+                    break;
+                }
+            }
+        }
+        this.deadState = complete ? -1 : dfa.getStateCount();
+        this.stateCount = dfa.getStateCount() + (complete ? 0 : 1);
+
+        this.elements = new int[stateCount];
+        this.location = new int[stateCount];
+        this.blockOf = new int[stateCount];
+        this.blockStart = new int[stateCount];
+        this.blockEnd = new int[stateCount];
+        this.markedCount = new int[stateCount];
+        this.pending = new int[stateCount * width];
+        this.isPending = new boolean[stateCount * width];
+    }
+
+    public static CompiledDFA minimize(CompiledDFA dfa) {
+        DFAMinimizer minimizer = new DFAMinimizer(dfa);
+        minimizer.refine();
+        return minimizer.toCompiledDFA();
+    }
+
+    private int nextState(int state, int symbol) {
+        if (state == deadState) {
+            return deadState;
+        }
+        int next = dfa.getNextState(state, symbol);
+        return next == CompiledDFA.NO_STATE ? deadState : next;
+    }
+
+    private boolean isAccepting(int state) {
+        return state != deadState && dfa.isAccepting(state);
+    }
+
+    private void refine() {
+        int[] inverseStart = new int[width * (stateCount + 1) + 1];
+        for (int s = 0 ; s < stateCount ; ++s) {
+            for (int symbol = 0 ; symbol < width ; ++symbol) {
+                ++inverseStart[symbol * (stateCount + 1) + nextState(s, symbol) + 1];
+            }
+        }
+        for (int i = 1 ; i < inverseStart.length ; ++i) {
+            inverseStart[i] += inverseStart[i - 1];
+        }
+        int[] inverse = new int[stateCount * width];
+        int[] fill = Arrays.copyOf(inverseStart, inverseStart.length);
+        for (int s = 0 ; s < stateCount ; ++s) {
+            for (int symbol = 0 ; symbol < width ; ++symbol) {
+                inverse[fill[symbol * (stateCount + 1) + nextState(s, symbol)]++] = s;
+            }
+        }
+
+        int acceptCount = 0;
+        for (int s = 0 ; s < stateCount ; ++s) {
+            if (isAccepting(s)) {
+                ++acceptCount;
+            }
+        }
+        int front = 0;
+        int back = acceptCount;
+        for (int s = 0 ; s < stateCount ; ++s) {
+            int position = isAccepting(s) ? front++ : back++;
+            elements[position] = s;
+            location[s] = position;
+        }
+        if (acceptCount > 0) {
+            addBlock(0, acceptCount);
+        }
+        if (acceptCount < stateCount) {
+            addBlock(acceptCount, stateCount);
+        }
+
+        int smaller = blockCount == 2 && blockEnd[1] - blockStart[1] < blockEnd[0] - blockStart[0] ? 1 : 0;
+        for (int symbol = 0 ; symbol < width ; ++symbol) {
+            addPending(smaller, symbol);
+        }
+
+        int[] touched = new int[stateCount];
+        int[] targets = new int[stateCount];
+        while (pendingCount > 0) {
+            int splitter = pending[--pendingCount];
+            isPending[splitter] = false;
+            int block = splitter / width;
+            int symbol = splitter % width;
+
+            int targetCount = blockEnd[block] - blockStart[block];
+            System.arraycopy(elements, blockStart[block], targets, 0, targetCount);
+
+            int touchedCount = 0;
+            for (int i = 0 ; i < targetCount ; ++i) {
+                int target = targets[i];
+                int from = inverseStart[symbol * (stateCount + 1) + target];
+                int to = inverseStart[symbol * (stateCount + 1) + target + 1];
+                for (int j = from ; j < to ; ++j) {
+                    int source = inverse[j];
+                    int sourceBlock = blockOf[source];
+                    if (location[source] < blockStart[sourceBlock] + markedCount[sourceBlock]) {
+                        continue;
+                    }
+                    if (markedCount[sourceBlock] == 0) {
+                        touched[touchedCount++] = sourceBlock;
+                    }
+                    swap(location[source], blockStart[sourceBlock] + markedCount[sourceBlock]++);
+                }
+            }
+
+            for (int t = 0 ; t < touchedCount ; ++t) {
+                split(touched[t]);
+            }
+        }
+    }
+
+    private void split(int block) {
+        int marked = markedCount[block];
+        markedCount[block] = 0;
+        if (marked == blockEnd[block] - blockStart[block]) {
+            return;
+        }
+
+        int newBlock = addBlock(blockStart[block], blockStart[block] + marked);
+        blockStart[block] += marked;
+
+        int smaller = blockEnd[newBlock] - blockStart[newBlock] < blockEnd[block] - blockStart[block] ? newBlock : block;
+        for (int symbol = 0 ; symbol < width ; ++symbol) {
+            if (isPending[block * width + symbol]) {
+                addPending(newBlock, symbol);
+            } else {
+                addPending(smaller, symbol);
+            }
+        }
+    }
+
+    private int addBlock(int start, int end) {
+        int block = blockCount++;
+        blockStart[block] = start;
+        blockEnd[block] = end;
+        for (int i = start ; i < end ; ++i) {
+            blockOf[elements[i]] = block;
+        }
+        return block;
+    }
+
+    private void addPending(int block, int symbol) {
+        if (!isPending[block * width + symbol]) {
+            isPending[block * width + symbol] = true;
+            pending[pendingCount++] = block * width + symbol;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int a = elements[i];
+        int b = elements[j];
+        elements[i] = b;
+        elements[j] = a;
+        location[b] = i;
+        location[a] = j;
+    }
+
+    private CompiledDFA toCompiledDFA() {
+        int[] newIndex = new int[blockCount];
+        int[] representative = new int[blockCount];
+        Arrays.fill(newIndex, -1);
+
+        int startBlock = blockOf[dfa.getStartState()];
+        int deadBlock = -1;
+        if (deadState >= 0 && blockEnd[blockOf[deadState]] - blockStart[blockOf[deadState]] == 1) {
+            deadBlock = blockOf[deadState];
+        }
+
+        int count = 0;
+        newIndex[startBlock] = count;
+        representative[count++] = dfa.getStartState();
+        for (int i = 0 ; i < count ; ++i) {
+            for (int symbol = 0 ; symbol < width ; ++symbol) {
+                int nextBlock = blockOf[nextState(representative[i], symbol)];
+                if (nextBlock != deadBlock && newIndex[nextBlock] == -1) {
+                    newIndex[nextBlock] = count;
+                    representative[count++] = firstMember(nextBlock);
+                }
+            }
+        }
+
+        int[] transitions = new int[count * width];
+        boolean[] accepting = new boolean[count];
+        String[] stateNames = new String[count];
+        for (int i = 0 ; i < count ; ++i) {
+            for (int symbol = 0 ; symbol < width ; ++symbol) {
+                int nextBlock = blockOf[nextState(representative[i], symbol)];
+                transitions[i * width + symbol] = nextBlock == deadBlock ? CompiledDFA.NO_STATE : newIndex[nextBlock];
+            }
+            accepting[i] = isAccepting(representative[i]);
+            stateNames[i] = dfa.getStateName(representative[i]);
+        }
+
+        return new CompiledDFA(dfa.getSymbolTable(), transitions, accepting, 0, stateNames, true);
+    }
+
+    private int firstMember(int block) {
+        int first = Integer.MAX_VALUE;
+        for (int i = blockStart[block] ; i < blockEnd[block] ; ++i) {
+            first = Math.min(first, elements[i]);
+        }
+        return first;
+    }
+
+}
@@ -0,0 +1,263 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Product construction on the table form of two DFAs.
+ * Only pairs reachable from the start pair are explored. Pairs are interned in
+ * an open-addressing table keyed by both state numbers packed into one long,
+ * so no objects are created per pair.
+ * A missing transition sends a component to an implicit dead state (-1), pairs
+ * that can no longer be accepted are dropped, except for the start pair.
+ * Transitions to dropped pairs are missing, so the result is partial: in
+ * {@link DFA#input(String)} they reject like the dead pair they stand for.
+ * The alphabet of the result is the union of both alphabets, states are named
+ * "(left, right)" with "-" for the dead state.
+ */
+public final class DFAProduct {
+
+    public enum Operation {
+        UNION, INTERSECTION, DIFFERENCE;
+
+        boolean accepts(boolean left, boolean right) {
+            switch (this) {
+                case UNION:
+                    return left || right;
+                case INTERSECTION:
+                    return left && right;
+                default:
+                    return left && !right;
+            }
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final CompiledDFA left;
+    private final CompiledDFA right;
+    private final Operation operation;
+    private final SymbolTable symbolTable;
+    private final int[] leftClassOf;
+    private final int[] rightClassOf;
+    private final int width;
+
+    private long[] keys;
+    private int[] values;
+    private int pairCount;
+    private int[] leftOf;
+    private int[] rightOf;
+    private int[] transitions;
+
+    private DFAProduct(CompiledDFA left, CompiledDFA right, Operation operation) {
+        this.left = left;
+        this.right = right;
+        this.operation = operation;
+
+        Set<String> alphabet = new HashSet<>();
+        addSymbols(left.getSymbolTable(), alphabet);
+        addSymbols(right.getSymbolTable(), alphabet);
+        SymbolTable symbols = new SymbolTable(alphabet);
+
+        int[] classOfSymbol = new int[symbols.size()];
+        HashMap<Long, Integer> classOfPair = new HashMap<>();
+        for (int symbol = 0 ; symbol < symbols.size() ; ++symbol) {
+            long pair = pack(componentClass(left, symbols.getSymbol(symbol)), componentClass(right, symbols.getSymbol(symbol)));
+            Integer symbolClass = classOfPair.get(pair);
+            if (symbolClass == null) {
+                symbolClass = classOfPair.size();
+                classOfPair.put(pair, symbolClass);
+            }
+            classOfSymbol[symbol] = symbolClass;
+        }
+        this.symbolTable = new SymbolTable(symbols, classOfSymbol);
+        this.width = symbolTable.getClassCount();
+
+        this.leftClassOf = new int[width];
+        this.rightClassOf = new int[width];
+        for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+            String symbol = symbolTable.getSymbol(symbolTable.getSymbolsOfClass(symbolClass)[0]);
+            leftClassOf[symbolClass] = componentClass(left, symbol);
+            rightClassOf[symbolClass] = componentClass(right, symbol);
+        }
+
+        this.keys = new long[INITIAL_CAPACITY];
+        this.values = new int[INITIAL_CAPACITY];
+        this.leftOf = new int[INITIAL_CAPACITY];
+        this.rightOf = new int[INITIAL_CAPACITY];
+        this.transitions = new int[INITIAL_CAPACITY * width];
+    }
+
+    public static CompiledDFA union(CompiledDFA left, CompiledDFA right) {
+        return product(left, right, Operation.UNION);
+    }
+
+    public static CompiledDFA intersect(CompiledDFA left, CompiledDFA right) {
+        return product(left, right, Operation.INTERSECTION);
+    }
+
+    public static CompiledDFA difference(CompiledDFA left, CompiledDFA right) {
+        return product(left, right, Operation.DIFFERENCE);
+    }
+
+    /**
+     * Complement within the alphabet of the DFA: inputs with other symbols are
+     * still rejected.
+     */
+    public static CompiledDFA complement(CompiledDFA dfa) {
+        return difference(universal(dfa.getSymbolTable()), dfa);
+    }
+
+    public static CompiledDFA product(CompiledDFA left, CompiledDFA right, Operation operation) {
+        return build(left, right, operation).toCompiledDFA();
+    }
+
+    /**
+     * Runs the construction and keeps the pair of every product state for the caller.
+     */
+    static DFAProduct build(CompiledDFA left, CompiledDFA right, Operation operation) {
+        DFAProduct product = new DFAProduct(left, right, operation);
+        product.explore();
+        return product;
+    }
+
+    private static void addSymbols(SymbolTable symbolTable, Set<String> alphabet) {
+        for (int symbol = 0 ; symbol < symbolTable.size() ; ++symbol) {
+            alphabet.add(symbolTable.getSymbol(symbol));
+        }
+    }
+
+    private static int componentClass(CompiledDFA dfa, String symbol) {
+        int index = dfa.getSymbolTable().indexOf(symbol);
+        return index == SymbolTable.NO_SYMBOL ? SymbolTable.NO_SYMBOL : dfa.getSymbolTable().classOf(index);
+    }
+
+    /**
+     * One accepting state that loops on every symbol of the table.
+     */
+    private static CompiledDFA universal(SymbolTable symbolTable) {
+        SymbolTable oneClass = new SymbolTable(symbolTable, new int[symbolTable.size()]);
+        int[] transitions = new int[oneClass.getClassCount()];
+        return new CompiledDFA(oneClass, transitions, new boolean[] { true }, 0, new String[] { "*" }, true);
+    }
+
+    private static long pack(int leftState, int rightState) {
+        return ((long) leftState << 32) | (rightState & 0xffffffffL);
+    }
+
+    private boolean isAccepting(int leftState, int rightState) {
+        return operation.accepts(leftState != CompiledDFA.NO_STATE && left.isAccepting(leftState),
+                                 rightState != CompiledDFA.NO_STATE && right.isAccepting(rightState));
+    }
+
+    /**
+     * A live component may still reach either outcome, a dead one only rejects.
+     */
+    private boolean isDead(int leftState, int rightState) {
+        boolean leftAlive = leftState != CompiledDFA.NO_STATE;
+        boolean rightAlive = rightState != CompiledDFA.NO_STATE;
+        return !operation.accepts(leftAlive, rightAlive)
+                && !operation.accepts(leftAlive, false)
+                && !operation.accepts(false, rightAlive)
+                && !operation.accepts(false, false);
+    }
+
+    private void explore() {
+        intern(left.getStartState(), right.getStartState());
+        for (int p = 0 ; p < pairCount ; ++p) {
+            for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+                int nextLeft = nextState(left, leftOf[p], leftClassOf[symbolClass]);
+                int nextRight = nextState(right, rightOf[p], rightClassOf[symbolClass]);
+                int next = isDead(nextLeft, nextRight) ? CompiledDFA.NO_STATE : intern(nextLeft, nextRight);
+                transitions[p * width + symbolClass] = next;
+            }
+        }
+    }
+
+    private static int nextState(CompiledDFA dfa, int state, int symbolClass) {
+        if (state == CompiledDFA.NO_STATE || symbolClass == SymbolTable.NO_SYMBOL) {
+            return CompiledDFA.NO_STATE;
+        }
+        return dfa.getNextState(state, symbolClass);
+    }
+
+    /**
+     * Linear probing, slots hold pair index + 1 so that 0 marks a free slot.
+     */
+    private int intern(int leftState, int rightState) {
+        long key = pack(leftState, rightState);
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int pair = pairCount++;
+        keys[slot] = key;
+        values[slot] = pair + 1;
+        if (pair == leftOf.length) {
+            leftOf = Arrays.copyOf(leftOf, pair * 2);
+            rightOf = Arrays.copyOf(rightOf, pair * 2);
+            transitions = Arrays.copyOf(transitions, pair * 2 * width);
+        }
+        leftOf[pair] = leftState;
+        rightOf[pair] = rightState;
+        if (pairCount * 2 > keys.length) {
+            rehash();
+        }
+        return pair;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0 ; i < oldKeys.length ; ++i) {
+            if (oldValues[i] != 0) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    CompiledDFA toCompiledDFA() {
+        boolean[] accepting = new boolean[pairCount];
+        String[] stateNames = new String[pairCount];
+        for (int p = 0 ; p < pairCount ; ++p) {
+            accepting[p] = isAccepting(leftOf[p], rightOf[p]);
+            stateNames[p] = "(" + componentName(left, leftOf[p]) + ", " + componentName(right, rightOf[p]) + ")";
+        }
+        return new CompiledDFA(symbolTable, Arrays.copyOf(transitions, pairCount * width), accepting, 0, stateNames, true);
+    }
+
+    private static String componentName(CompiledDFA dfa, int state) {
+        return state == CompiledDFA.NO_STATE ? "-" : dfa.getStateName(state);
+    }
+
+    int getPairCount() {
+        return pairCount;
+    }
+
+    int getLeftState(int pair) {
+        return leftOf[pair];
+    }
+
+    int getRightState(int pair) {
+        return rightOf[pair];
+    }
+
+}
@@ -2,9 +2,13 @@ import java.security.InvalidAlgorithmParameterException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DState extends State {
+    private static final AtomicLong modificationCount = new AtomicLong();
+
     private HashMap<String, DState> nextStates;
+    private int version;
 
     public DState(String stateName) {
         super(stateName);
@@ -16,7 +20,25 @@ public class DState extends State {
     }
 
     public void putNextState(String symbol, DState nextState) {
-        nextStates.put(symbol, nextState);
+        if (nextStates.put(symbol, nextState) != nextState) {
+            ++version;
+            modificationCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Incremented on every change to any DState. While it is unchanged no
+     * compiled form can be stale, so checking it is a cheap first test.
+     */
+    public static long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    /**
+     * Incremented on every change to this state.
+     */
+    public int getVersion() {
+        return version;
     }
 
     public String findSymbolToState(DState nextState) {
@@ -28,6 +50,10 @@ public class DState extends State {
         return null;
     }
 
+    public Set<String> getSymbols() {
+        return nextStates.keySet();
+    }
+
     public Set<DState> getNextStates() {
         return new HashSet<>(nextStates.values());
     }
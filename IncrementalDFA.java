@@ -0,0 +1,434 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps a DFA determinized from an NFA up to date while transitions are
+ * added to the NFA with {@link NState#putNextState(String, NState)}.
+ * The index from subsets to DStates of the last conversion is kept, and an
+ * added transition only revisits the DStates whose subset holds its source:
+ * - a symbol transition grows the successor subset of those DStates;
+ * - an epsilon transition grows their subsets, each of them is replaced by
+ *   the DState of the grown subset and its predecessors are redirected.
+ * New subsets are explored as in {@link DFA#convertFrom(NFA)}, as
+ * {@link StateSet}s over the NStates numbered in the order they were first
+ * seen; a {@link CompiledNFA} would have to be recompiled on every change.
+ * DStates nobody
+ * points to any more are removed at once, unreachable cycles are swept once
+ * there are enough candidates, so updates cost time in the size of the change.
+ * A symbol the DFA has not seen yet needs a transition from every DState.
+ * The DFA is patched in place, it is complete like the one of
+ * DFA.convertFrom and states are never renumbered. Changes to the accept
+ * states of the NFA are not tracked. Not thread-safe, like NState.
+ */
+public final class IncrementalDFA implements NState.TransitionListener, AutoCloseable {
+    private static final int MIN_SWEEP_SUSPECTS = 64;
+
+    private static final class Node {
+        final DState state;
+        StateSet subset;
+        final HashMap<Node, Integer> predecessors = new HashMap<>();
+        boolean explored;
+        boolean removed;
+
+        Node(DState state, StateSet subset) {
+            this.state = state;
+            this.subset = subset;
+        }
+    }
+
+    private final NFA nfa;
+    private final List<NState> states = new ArrayList<>();
+    private final HashMap<NState, Integer> indexOfState = new HashMap<>();
+    private final List<Set<Node>> nodesContaining = new ArrayList<>();
+    private final HashMap<StateSet, Node> nodeOfSubset = new HashMap<>();
+    private final HashMap<DState, Node> nodeOfState = new HashMap<>();
+    private final Set<String> alphabet = new HashSet<>();
+    private final ArrayDeque<Node> unexplored = new ArrayDeque<>();
+    private final ArrayDeque<String> newSymbols = new ArrayDeque<>();
+    private final ArrayDeque<Node> garbage = new ArrayDeque<>();
+    private final DFA dfa;
+    private Node startNode;
+    private int wordCount = 1;
+    private int suspects;
+    private int updateCount;
+
+    /**
+     * Converts {@code nfa} and starts listening to its states.
+     */
+    public IncrementalDFA(NFA nfa) {
+        this.nfa = nfa;
+        for (NState state : nfa.getStates()) {
+            register(state);
+        }
+        register(nfa.getStartState());
+        alphabet.addAll(newSymbols);
+        newSymbols.clear();
+
+        startNode = nodeOf(closureOf(nfa.getStartState()));
+        explore();
+
+        Set<DState> dStates = new HashSet<>();
+        Set<DState> acceptStates = new HashSet<>();
+        for (Node node : nodeOfState.values()) {
+            dStates.add(node.state);
+            if (isAccepting(node.subset.getWords())) {
+                acceptStates.add(node.state);
+            }
+        }
+        dfa = new DFA(dStates, startNode.state, acceptStates);
+        for (String symbol : alphabet) {
+            dfa.addSymbol(symbol);
+        }
+    }
+
+    public DFA getDFA() {
+        return dfa;
+    }
+
+    public int getStateCount() {
+        return nodeOfState.size();
+    }
+
+    /**
+     * Number of transitions added to the NFA since it was converted.
+     */
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * Stops listening, the DFA is no longer updated.
+     */
+    @Override
+    public void close() {
+        for (NState state : states) {
+            state.removeTransitionListener(this);
+        }
+    }
+
+    @Override
+    public void onTransitionAdded(NState state, String symbol, NState nextState) {
+        ++updateCount;
+        register(nextState);
+        Set<Node> affected = nodesContaining.get(indexOfState.get(state));
+
+        if (symbol == null) {
+            long[] added = closureOf(nextState);
+            List<Node> stale = new ArrayList<>();
+            for (Node node : affected) {
+                if (!StateSet.containsAll(node.subset.getWords(), added)) {
+                    stale.add(node);
+                }
+            }
+            for (Node node : stale) {
+                nodeOfSubset.remove(node.subset, node);
+            }
+            for (Node node : stale) {
+                long[] grown = node.subset.getWords().clone();
+                StateSet.addAll(grown, added);
+                replace(node, nodeOf(grown));
+            }
+        } else if (!alphabet.contains(symbol)) {
+            newSymbols.add(symbol);
+        } else if (!affected.isEmpty()) {
+            long[] added = closureOf(nextState);
+            for (Node node : new ArrayList<>(affected)) {
+                Node target = nodeOfState.get(node.state.getNextState(symbol));
+                if (!StateSet.containsAll(target.subset.getWords(), added)) {
+                    long[] grown = target.subset.getWords().clone();
+                    StateSet.addAll(grown, added);
+                    setTransition(node, symbol, nodeOf(grown));
+                }
+            }
+        }
+
+        explore();
+        collectGarbage();
+        if (suspects > Math.max(MIN_SWEEP_SUSPECTS, nodeOfState.size() / 2)) {
+            sweep();
+        }
+        dfa.statesChanged();
+    }
+
+    /**
+     * Numbers the state and every state reachable from it that is not
+     * numbered yet, and starts listening to them.
+     */
+    private void register(NState state) {
+        if (indexOfState.containsKey(state)) {
+            return;
+        }
+        ArrayDeque<NState> queue = new ArrayDeque<>();
+        number(state, queue);
+        while (!queue.isEmpty()) {
+            NState next = queue.poll();
+            for (String symbol : next.getSymbols()) {
+                if (symbol != null && !alphabet.contains(symbol) && !newSymbols.contains(symbol)) {
+                    newSymbols.add(symbol);
+                }
+                for (NState nextState : next.getNextStates(symbol)) {
+                    if (!indexOfState.containsKey(nextState)) {
+                        number(nextState, queue);
+                    }
+                }
+            }
+        }
+        if (states.size() > 64 * wordCount) {
+            grow();
+        }
+    }
+
+    private void number(NState state, ArrayDeque<NState> queue) {
+        indexOfState.put(state, states.size());
+        states.add(state);
+        nodesContaining.add(new HashSet<>());
+        state.addTransitionListener(this);
+        queue.add(state);
+    }
+
+    /**
+     * Widens the subsets of all DStates once the states no longer fit.
+     */
+    private void grow() {
+        while (states.size() > 64 * wordCount) {
+            wordCount *= 2;
+        }
+        List<Node> indexed = new ArrayList<>(nodeOfSubset.values());
+        nodeOfSubset.clear();
+        for (Node node : nodeOfState.values()) {
+            node.subset = new StateSet(Arrays.copyOf(node.subset.getWords(), wordCount));
+        }
+        for (Node node : indexed) {
+            nodeOfSubset.put(node.subset, node);
+        }
+    }
+
+    /**
+     * Explores new subsets until none is left, then adds the transitions on
+     * new symbols from every DState.
+     */
+    private void explore() {
+        while (!unexplored.isEmpty() || !newSymbols.isEmpty()) {
+            while (!unexplored.isEmpty()) {
+                Node node = unexplored.poll();
+                if (node.removed) {
+                    continue;
+                }
+                node.explored = true;
+                for (String symbol : alphabet) {
+                    setTransition(node, symbol, nodeOf(closure(move(node.subset.getWords(), symbol))));
+                }
+            }
+            if (!newSymbols.isEmpty()) {
+                String symbol = newSymbols.poll();
+                if (alphabet.add(symbol)) {
+                    if (dfa != null) {
+                        dfa.addSymbol(symbol);
+                    }
+                    for (Node node : new ArrayList<>(nodeOfState.values())) {
+                        if (node.explored && !node.removed) {
+                            setTransition(node, symbol, nodeOf(closure(move(node.subset.getWords(), symbol))));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private Node nodeOf(long[] words) {
+        StateSet subset = new StateSet(words);
+        Node node = nodeOfSubset.get(subset);
+        if (node != null) {
+            return node;
+        }
+
+        node = new Node(new DState(subsetName(words)), subset);
+        nodeOfSubset.put(subset, node);
+        nodeOfState.put(node.state, node);
+        for (int s = StateSet.nextMember(words, 0) ; s >= 0 ; s = StateSet.nextMember(words, s + 1)) {
+            nodesContaining.get(s).add(node);
+        }
+        if (dfa != null) {
+            dfa.addState(node.state, isAccepting(words));
+        }
+        unexplored.add(node);
+        return node;
+    }
+
+    /**
+     * Points every predecessor of {@code node} to {@code replacement}.
+     */
+    private void replace(Node node, Node replacement) {
+        for (Node predecessor : new ArrayList<>(node.predecessors.keySet())) {
+            for (String symbol : predecessor.state.getSymbols()) {
+                if (predecessor.state.getNextState(symbol) == node.state) {
+                    setTransition(predecessor, symbol, replacement);
+                }
+            }
+        }
+        if (node == startNode) {
+            startNode = replacement;
+            dfa.setStartState(replacement.state);
+        }
+        garbage.add(node);
+    }
+
+    private void setTransition(Node from, String symbol, Node to) {
+        DState previous = from.state.getNextState(symbol);
+        if (previous == to.state) {
+            return;
+        }
+        from.state.putNextState(symbol, to.state);
+        if (from != to) {
+            to.predecessors.merge(from, 1, Integer::sum);
+        }
+        Node previousNode = previous == null ? null : nodeOfState.get(previous);
+        if (previousNode != null) {
+            unlink(from, previousNode);
+        }
+    }
+
+    private void unlink(Node from, Node to) {
+        if (from == to || to.removed) {
+            return;
+        }
+        if (to.predecessors.merge(from, -1, Integer::sum) == 0) {
+            to.predecessors.remove(from);
+        }
+        if (to.predecessors.isEmpty() && to != startNode) {
+            garbage.add(to);
+        } else {
+            ++suspects;
+        }
+    }
+
+    private void collectGarbage() {
+        while (!garbage.isEmpty()) {
+            Node node = garbage.poll();
+            if (!node.removed && node != startNode && node.predecessors.isEmpty()) {
+                remove(node);
+            }
+        }
+    }
+
+    private void remove(Node node) {
+        node.removed = true;
+        nodeOfSubset.remove(node.subset, node);
+        nodeOfState.remove(node.state);
+        long[] words = node.subset.getWords();
+        for (int s = StateSet.nextMember(words, 0) ; s >= 0 ; s = StateSet.nextMember(words, s + 1)) {
+            nodesContaining.get(s).remove(node);
+        }
+        dfa.removeState(node.state);
+        for (DState nextState : node.state.getNextStates()) {
+            Node next = nodeOfState.get(nextState);
+            if (next != null) {
+                unlink(node, next);
+            }
+        }
+    }
+
+    /**
+     * Removes the states not reachable from the start state.
+     */
+    private void sweep() {
+        Set<Node> reachable = new HashSet<>();
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        reachable.add(startNode);
+        queue.add(startNode);
+        while (!queue.isEmpty()) {
+            for (DState nextState : queue.poll().state.getNextStates()) {
+                Node next = nodeOfState.get(nextState);
+                if (reachable.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+
+        List<Node> unreachable = new ArrayList<>();
+        for (Node node : nodeOfState.values()) {
+            if (!reachable.contains(node)) {
+                unreachable.add(node);
+            }
+        }
+        for (Node node : unreachable) {
+            node.predecessors.clear();
+        }
+        for (Node node : unreachable) {
+            remove(node);
+        }
+        for (Node node : reachable) {
+            node.predecessors.keySet().removeIf(predecessor -> predecessor.removed);
+        }
+        garbage.clear();
+        suspects = 0;
+    }
+
+    private boolean isAccepting(long[] words) {
+        for (NState acceptState : nfa.getAcceptStates()) {
+            Integer index = indexOfState.get(acceptState);
+            if (index != null && StateSet.contains(words, index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long[] move(long[] words, String symbol) {
+        long[] next = new long[wordCount];
+        for (int s = StateSet.nextMember(words, 0) ; s >= 0 ; s = StateSet.nextMember(words, s + 1)) {
+            Set<NState> nextStates = states.get(s).getNextStates(symbol);
+            if (nextStates != null) {
+                for (NState nextState : nextStates) {
+                    StateSet.add(next, indexOfState.get(nextState));
+                }
+            }
+        }
+        return next;
+    }
+
+    private long[] closureOf(NState state) {
+        long[] words = new long[wordCount];
+        StateSet.add(words, indexOfState.get(state));
+        return closure(words);
+    }
+
+    /**
+     * Adds the epsilon closure of its members to {@code words}.
+     */
+    private long[] closure(long[] words) {
+        int[] stack = new int[states.size()];
+        int count = 0;
+        for (int s = StateSet.nextMember(words, 0) ; s >= 0 ; s = StateSet.nextMember(words, s + 1)) {
+            stack[count++] = s;
+        }
+        while (count > 0) {
+            Set<NState> nextStates = states.get(stack[--count]).getNextStates(null);
+            if (nextStates != null) {
+                for (NState nextState : nextStates) {
+                    int index = indexOfState.get(nextState);
+                    if (!StateSet.contains(words, index)) {
+                        StateSet.add(words, index);
+                        stack[count++] = index;
+                    }
+                }
+            }
+        }
+        return words;
+    }
+
+    private String subsetName(long[] words) {
+        List<String> names = new ArrayList<>();
+        for (int s = StateSet.nextMember(words, 0) ; s >= 0 ; s = StateSet.nextMember(words, s + 1)) {
+            names.add(String.valueOf(states.get(s).getStateName()));
+        }
+        names.sort(null);
+        return "{" + String.join(", ", names) + "}";
+    }
+
+}
@@ -0,0 +1,119 @@
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Matches many inputs in one thread by advancing several of them in lockstep,
+ * one char per input and round. The table loads of different inputs do not
+ * depend on each other, so when the table does not fit in the cache the CPU
+ * can wait for several of them at once instead of one per char.
+ * A lane that finishes its input takes the next one, so inputs of different
+ * lengths keep all lanes busy. 4 to 16 lanes suit most CPUs. For a table
+ * that fits in the cache the bookkeeping costs more than it saves, a plain
+ * loop over {@link CompiledDFA#matches(CharSequence)} is faster.
+ * The lanes step through a {@link RowTable}.
+ * Never modified after construction, so it can be shared between threads.
+ */
+public final class InterleavedMatcher implements Recognizer {
+    public static final int DEFAULT_LANES = 8;
+    public static final int MAX_LANES = 64;
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final int lanes;
+    private final RowTable table;
+
+    public InterleavedMatcher(CompiledDFA dfa) {
+        this(dfa, DEFAULT_LANES);
+    }
+
+    public InterleavedMatcher(CompiledDFA dfa, int lanes) {
+        if (lanes < 1 || lanes > MAX_LANES) {
+            throw new IllegalArgumentException("Lanes must be between 1 and " + MAX_LANES + ": " + lanes);
+        }
+        this.lanes = lanes;
+        this.table = new RowTable(dfa);
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    @Override
+    public boolean matches(CharSequence input) {
+        return table.matches(input);
+    }
+
+    /**
+     * Matches all inputs in the calling thread.
+     * @return bit i is set if input i is accepted
+     */
+    public BitSet matchInterleaved(List<? extends CharSequence> inputs) {
+        boolean[] accepted = new boolean[inputs.size()];
+        matchRange(inputs, 0, inputs.size(), accepted);
+        return RowTable.toBitSet(accepted);
+    }
+
+    /**
+     * Splits the inputs into chunks matched on the common fork-join pool,
+     * each chunk interleaved in one thread.
+     */
+    @Override
+    public BitSet matchAll(List<? extends CharSequence> inputs) {
+        boolean[] accepted = new boolean[inputs.size()];
+        int chunks = (inputs.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(c ->
+                matchRange(inputs, c * CHUNK_SIZE, Math.min(inputs.size(), (c + 1) * CHUNK_SIZE), accepted));
+        return RowTable.toBitSet(accepted);
+    }
+
+    private void matchRange(List<? extends CharSequence> inputs, int from, int to, boolean[] accepted) {
+        CharSequence[] text = new CharSequence[lanes];
+        int[] inputIndex = new int[lanes];
+        int[] position = new int[lanes];
+        int[] length = new int[lanes];
+        int[] row = new int[lanes];
+        int next = from;
+        int active = 0;
+
+        for (int lane = 0 ; lane < lanes && next < to ; ++lane) {
+            text[lane] = inputs.get(next);
+            inputIndex[lane] = next++;
+            length[lane] = text[lane].length();
+            row[lane] = table.getStartRow();
+            ++active;
+        }
+
+        while (active > 0) {
+            for (int lane = 0 ; lane < lanes ; ++lane) {
+                if (text[lane] == null) {
+                    continue;
+                }
+                int p = position[lane];
+                int r = row[lane];
+                if (p < length[lane]) {
+                    r = table.step(r, text[lane].charAt(p));
+                    position[lane] = p + 1;
+                    row[lane] = r;
+                    if (r != CompiledDFA.NO_STATE) {
+                        continue;
+                    }
+                } else {
+                    accepted[inputIndex[lane]] = table.isAccepting(r);
+                }
+
+                if (next < to) {
+                    text[lane] = inputs.get(next);
+                    inputIndex[lane] = next++;
+                    length[lane] = text[lane].length();
+                    position[lane] = 0;
+                    row[lane] = table.getStartRow();
+                } else {
+                    text[lane] = null;
+                    --active;
+                }
+            }
+        }
+    }
+
+}
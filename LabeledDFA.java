@@ -0,0 +1,90 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Union of several DFAs that remembers which of them accept.
+ * Built by folding the patterns into a product one at a time, every product
+ * state carries the set of pattern indices whose DFA accepts in it.
+ * Never modified after construction, so it can be shared between threads.
+ */
+public final class LabeledDFA implements Recognizer {
+    private final CompiledDFA dfa;
+    private final BitSet[] labels;
+
+    private LabeledDFA(CompiledDFA dfa, BitSet[] labels) {
+        this.dfa = dfa;
+        this.labels = labels;
+    }
+
+    public static LabeledDFA union(List<DFA> patterns) {
+        if (patterns.isEmpty()) {
+            throw new IllegalArgumentException("No patterns.");
+        }
+
+        CompiledDFA current = patterns.get(0).compile();
+        BitSet[] labels = new BitSet[current.getStateCount()];
+        for (int s = 0 ; s < labels.length ; ++s) {
+            labels[s] = new BitSet();
+            if (current.isAccepting(s)) {
+                labels[s].set(0);
+            }
+        }
+
+        for (int i = 1 ; i < patterns.size() ; ++i) {
+            CompiledDFA pattern = patterns.get(i).compile();
+            DFAProduct product = DFAProduct.build(current, pattern, DFAProduct.Operation.UNION);
+
+            BitSet[] nextLabels = new BitSet[product.getPairCount()];
+            for (int p = 0 ; p < nextLabels.length ; ++p) {
+                int leftState = product.getLeftState(p);
+                int rightState = product.getRightState(p);
+                nextLabels[p] = leftState == CompiledDFA.NO_STATE ? new BitSet() : (BitSet) labels[leftState].clone();
+                if (rightState != CompiledDFA.NO_STATE && pattern.isAccepting(rightState)) {
+                    nextLabels[p].set(i);
+                }
+            }
+            current = product.toCompiledDFA();
+            labels = nextLabels;
+        }
+        return new LabeledDFA(current, labels);
+    }
+
+    public static LabeledDFA union(DFA... patterns) {
+        List<DFA> list = new ArrayList<>();
+        for (DFA pattern : patterns) {
+            list.add(pattern);
+        }
+        return union(list);
+    }
+
+    /**
+     * @return the indices of the patterns that accept the input, empty if none does
+     */
+    public BitSet acceptedBy(CharSequence input) {
+        int state = dfa.run(dfa.getStartState(), input);
+        return state == CompiledDFA.NO_STATE ? new BitSet() : (BitSet) labels[state].clone();
+    }
+
+    @Override
+    public boolean matches(CharSequence input) {
+        int state = dfa.run(dfa.getStartState(), input);
+        return state != CompiledDFA.NO_STATE && !labels[state].isEmpty();
+    }
+
+    /**
+     * The returned set must not be modified.
+     */
+    public BitSet getLabels(int state) {
+        return labels[state];
+    }
+
+    public CompiledDFA getCompiledDFA() {
+        return dfa;
+    }
+
+    public DFA toDFA() {
+        return DFA.fromCompiled(dfa);
+    }
+
+}
@@ -0,0 +1,436 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Language equivalence and inclusion of automata, explored on the fly from
+ * the start states and stopped at the first difference, so neither
+ * automaton is determinized beyond the subsets actually reached.
+ * Equivalence is the union-find bisimulation of Hopcroft and Karp, inclusion
+ * between NFAs uses antichains: a pair is dropped when a pair with the same
+ * state and a smaller subset was already seen. Both explore breadth-first,
+ * so a counterexample is as short as possible.
+ * The alphabet is the union of both alphabets, a symbol an automaton lacks
+ * leads it to a rejecting sink.
+ */
+public final class LanguageCheck {
+
+    public static final class Result {
+        private final List<String> counterexample;
+        private final int exploredCount;
+
+        private Result(List<String> counterexample, int exploredCount) {
+            this.counterexample = counterexample;
+            this.exploredCount = exploredCount;
+        }
+
+        public boolean holds() {
+            return counterexample == null;
+        }
+
+        /**
+         * A shortest input on which the check fails, its symbols concatenated, or null.
+         */
+        public String getCounterexample() {
+            return counterexample == null ? null : String.join("", counterexample);
+        }
+
+        /**
+         * The counterexample one symbol per element, or null.
+         */
+        public List<String> getCounterexampleSymbols() {
+            return counterexample;
+        }
+
+        /**
+         * Number of pairs of states that were explored.
+         */
+        public int getExploredCount() {
+            return exploredCount;
+        }
+
+        @Override
+        public String toString() {
+            return holds() ? "holds" : "fails on \"" + getCounterexample() + "\"";
+        }
+    }
+
+    /**
+     * Deterministic automaton whose states are numbered as they are reached.
+     */
+    private interface DeterministicView {
+        int start();
+
+        int next(int state, int symbol);
+
+        boolean isAccepting(int state);
+
+        /**
+         * Whether the subset of {@code state} contains the one of {@code otherState}.
+         */
+        boolean covers(int state, int otherState);
+    }
+
+    private LanguageCheck() {
+    }
+
+    public static Result equivalent(DFA a, DFA b) {
+        String[] alphabet = alphabetOf(a.getAlphabet(), b.getAlphabet());
+        return equivalent(new DFAView(a.compile(), alphabet), new DFAView(b.compile(), alphabet), alphabet);
+    }
+
+    public static Result equivalent(NFA a, NFA b) {
+        String[] alphabet = alphabetOf(a.getAlphabet(), b.getAlphabet());
+        return equivalent(new SubsetView(a.compile(), alphabet), new SubsetView(b.compile(), alphabet), alphabet);
+    }
+
+    /**
+     * Whether every input accepted by {@code b} is accepted by {@code a}.
+     * The counterexample is accepted by b only.
+     */
+    public static Result includes(DFA a, DFA b) {
+        String[] alphabet = alphabetOf(a.getAlphabet(), b.getAlphabet());
+        DFAView right = new DFAView(b.compile(), alphabet);
+        return includes(new DFAView(a.compile(), alphabet), new int[] { right.start() },
+                (state, symbol) -> new int[] { right.next(state, symbol) }, right::isAccepting, alphabet);
+    }
+
+    /**
+     * Whether every input accepted by {@code b} is accepted by {@code a}.
+     * The counterexample is accepted by b only. The states of b are not
+     * determinized, a is determinized lazily.
+     */
+    public static Result includes(NFA a, NFA b) {
+        String[] alphabet = alphabetOf(a.getAlphabet(), b.getAlphabet());
+        CompiledNFA right = b.compile();
+        int[] classOfSymbol = classesOf(right.getSymbolTable(), alphabet);
+        int[][] successors = new int[right.getStateCount() * Math.max(1, alphabet.length)][];
+        boolean[] accepting = new boolean[right.getStateCount()];
+        for (int s = 0 ; s < accepting.length ; ++s) {
+            long[] words = StateSet.newWords(right.getStateCount());
+            StateSet.add(words, s);
+            accepting[s] = right.isAccepting(words);
+        }
+
+        long[] startStates = StateSet.newWords(right.getStateCount());
+        right.addClosure(right.getStartState(), startStates);
+        return includes(new SubsetView(a.compile(), alphabet), members(startStates), (state, symbol) -> {
+            int index = state * alphabet.length + symbol;
+            if (successors[index] == null) {
+                long[] nextStates = StateSet.newWords(right.getStateCount());
+                if (classOfSymbol[symbol] != SymbolTable.NO_SYMBOL) {
+                    long[] from = StateSet.newWords(right.getStateCount());
+                    StateSet.add(from, state);
+                    right.step(from, classOfSymbol[symbol], nextStates);
+                }
+                successors[index] = members(nextStates);
+            }
+            return successors[index];
+        }, state -> accepting[state], alphabet);
+    }
+
+    private interface Successors {
+        int[] next(int state, int symbol);
+    }
+
+    private interface Acceptance {
+        boolean isAccepting(int state);
+    }
+
+    /**
+     * Hopcroft-Karp: pairs are explored breadth-first and skipped when their
+     * states are already known to be equivalent. States of a are numbered
+     * 2i in the union-find, states of b 2i + 1.
+     */
+    private static Result equivalent(DeterministicView a, DeterministicView b, String[] alphabet) {
+        UnionFind classes = new UnionFind();
+        PairQueue queue = new PairQueue();
+        queue.add(a.start(), b.start(), -1, -1);
+        if (a.isAccepting(a.start()) != b.isAccepting(b.start())) {
+            return queue.counterexample(0, alphabet);
+        }
+        classes.union(2 * a.start(), 2 * b.start() + 1);
+
+        for (int i = 0 ; i < queue.size() ; ++i) {
+            for (int symbol = 0 ; symbol < alphabet.length ; ++symbol) {
+                int x = a.next(queue.left(i), symbol);
+                int y = b.next(queue.right(i), symbol);
+                if (classes.find(2 * x) == classes.find(2 * y + 1)) {
+                    continue;
+                }
+                int pair = queue.add(x, y, i, symbol);
+                if (a.isAccepting(x) != b.isAccepting(y)) {
+                    return queue.counterexample(pair, alphabet);
+                }
+                classes.union(2 * x, 2 * y + 1);
+            }
+        }
+        return new Result(null, queue.size());
+    }
+
+    /**
+     * Explores pairs of a state of b and a subset of a. A pair is dropped
+     * if the antichain of its state holds a subset it covers: everything
+     * the pair could reject, the smaller subset rejects too.
+     */
+    private static Result includes(DeterministicView a, int[] startStates, Successors b, Acceptance acceptance,
+                                   String[] alphabet) {
+        HashMap<Integer, List<Integer>> antichains = new HashMap<>();
+        PairQueue queue = new PairQueue();
+
+        for (int state : startStates) {
+            int pair = addMinimal(a, antichains, queue, a.start(), state, -1, -1);
+            if (pair >= 0 && acceptance.isAccepting(state) && !a.isAccepting(a.start())) {
+                return queue.counterexample(pair, alphabet);
+            }
+        }
+        for (int i = 0 ; i < queue.size() ; ++i) {
+            for (int symbol = 0 ; symbol < alphabet.length ; ++symbol) {
+                int subset = a.next(queue.left(i), symbol);
+                for (int state : b.next(queue.right(i), symbol)) {
+                    int pair = addMinimal(a, antichains, queue, subset, state, i, symbol);
+                    if (pair >= 0 && acceptance.isAccepting(state) && !a.isAccepting(subset)) {
+                        return queue.counterexample(pair, alphabet);
+                    }
+                }
+            }
+        }
+        return new Result(null, queue.size());
+    }
+
+    /**
+     * @return the new pair, or -1 if it is covered by the antichain
+     */
+    private static int addMinimal(DeterministicView a, HashMap<Integer, List<Integer>> antichains, PairQueue queue,
+                                  int subset, int state, int parent, int symbol) {
+        List<Integer> antichain = antichains.computeIfAbsent(state, key -> new ArrayList<>());
+        for (int other : antichain) {
+            if (a.covers(subset, other)) {
+                return -1;
+            }
+        }
+        antichain.removeIf(other -> a.covers(other, subset));
+        antichain.add(subset);
+        return queue.add(subset, state, parent, symbol);
+    }
+
+    private static String[] alphabetOf(Set<String> alphabet, Set<String> otherAlphabet) {
+        TreeSet<String> symbols = new TreeSet<>();
+        for (String symbol : alphabet) {
+            if (symbol != null) {
+                symbols.add(symbol);
+            }
+        }
+        for (String symbol : otherAlphabet) {
+            if (symbol != null) {
+                symbols.add(symbol);
+            }
+        }
+        return symbols.toArray(new String[0]);
+    }
+
+    private static int[] classesOf(SymbolTable symbolTable, String[] alphabet) {
+        int[] classOfSymbol = new int[alphabet.length];
+        for (int i = 0 ; i < alphabet.length ; ++i) {
+            int symbol = symbolTable.indexOf(alphabet[i]);
+            classOfSymbol[i] = symbol < 0 ? SymbolTable.NO_SYMBOL : symbolTable.classOf(symbol);
+        }
+        return classOfSymbol;
+    }
+
+    private static int[] members(long[] words) {
+        int[] members = new int[new StateSet(words).size()];
+        int i = 0;
+        for (int s = StateSet.nextMember(words, 0) ; s >= 0 ; s = StateSet.nextMember(words, s + 1)) {
+            members[i++] = s;
+        }
+        return members;
+    }
+
+    /**
+     * The table of a DFA with one more state, the rejecting sink.
+     */
+    private static final class DFAView implements DeterministicView {
+        private final CompiledDFA dfa;
+        private final int[] classOfSymbol;
+        private final int sink;
+
+        DFAView(CompiledDFA dfa, String[] alphabet) {
+            this.dfa = dfa;
+            this.classOfSymbol = classesOf(dfa.getSymbolTable(), alphabet);
+            this.sink = dfa.getStateCount();
+        }
+
+        @Override
+        public int start() {
+            return dfa.getStartState();
+        }
+
+        @Override
+        public int next(int state, int symbol) {
+            if (state == sink || classOfSymbol[symbol] == SymbolTable.NO_SYMBOL) {
+                return sink;
+            }
+            int next = dfa.getNextState(state, classOfSymbol[symbol]);
+            return next == CompiledDFA.NO_STATE ? sink : next;
+        }
+
+        @Override
+        public boolean isAccepting(int state) {
+            return state != sink && dfa.isAccepting(state);
+        }
+
+        @Override
+        public boolean covers(int state, int otherState) {
+            return state == otherState || otherState == sink;
+        }
+    }
+
+    /**
+     * Subsets of an NFA numbered as they are reached, with their transitions cached.
+     */
+    private static final class SubsetView implements DeterministicView {
+        private final CompiledNFA nfa;
+        private final int[] classOfSymbol;
+        private final int width;
+        private final HashMap<StateSet, Integer> indexOfSubset = new HashMap<>();
+        private final List<long[]> subsets = new ArrayList<>();
+        private int[] transitions = new int[0];
+        private final int start;
+
+        SubsetView(CompiledNFA nfa, String[] alphabet) {
+            this.nfa = nfa;
+            this.classOfSymbol = classesOf(nfa.getSymbolTable(), alphabet);
+            this.width = Math.max(1, alphabet.length);
+            long[] startStates = StateSet.newWords(nfa.getStateCount());
+            nfa.addClosure(nfa.getStartState(), startStates);
+            this.start = indexOf(startStates);
+        }
+
+        private int indexOf(long[] subset) {
+            Integer index = indexOfSubset.get(new StateSet(subset));
+            if (index != null) {
+                return index;
+            }
+            index = subsets.size();
+            indexOfSubset.put(new StateSet(subset), index);
+            subsets.add(subset);
+            if (transitions.length < subsets.size() * width) {
+                int oldLength = transitions.length;
+                transitions = Arrays.copyOf(transitions, Math.max(16 * width, 2 * transitions.length));
+                Arrays.fill(transitions, oldLength, transitions.length, -1);
+            }
+            return index;
+        }
+
+        @Override
+        public int start() {
+            return start;
+        }
+
+        @Override
+        public int next(int state, int symbol) {
+            int next = transitions[state * width + symbol];
+            if (next < 0) {
+                long[] nextStates = StateSet.newWords(nfa.getStateCount());
+                if (classOfSymbol[symbol] != SymbolTable.NO_SYMBOL) {
+                    nfa.step(subsets.get(state), classOfSymbol[symbol], nextStates);
+                }
+                next = indexOf(nextStates);
+                transitions[state * width + symbol] = next;
+            }
+            return next;
+        }
+
+        @Override
+        public boolean isAccepting(int state) {
+            return nfa.isAccepting(subsets.get(state));
+        }
+
+        @Override
+        public boolean covers(int state, int otherState) {
+            long[] words = subsets.get(state);
+            long[] otherWords = subsets.get(otherState);
+            for (int w = 0 ; w < words.length ; ++w) {
+                if ((otherWords[w] & ~words[w]) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Explored pairs with the pair and symbol they were reached from.
+     */
+    private static final class PairQueue {
+        private int[] pairs = new int[64];
+        private int size;
+
+        int add(int left, int right, int parent, int symbol) {
+            if (pairs.length < 4 * (size + 1)) {
+                pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+            }
+            pairs[4 * size] = left;
+            pairs[4 * size + 1] = right;
+            pairs[4 * size + 2] = parent;
+            pairs[4 * size + 3] = symbol;
+            return size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int left(int pair) {
+            return pairs[4 * pair];
+        }
+
+        int right(int pair) {
+            return pairs[4 * pair + 1];
+        }
+
+        Result counterexample(int pair, String[] alphabet) {
+            List<String> symbols = new ArrayList<>();
+            for (int p = pair ; pairs[4 * p + 2] >= 0 ; p = pairs[4 * p + 2]) {
+                symbols.add(alphabet[pairs[4 * p + 3]]);
+            }
+            Collections.reverse(symbols);
+            return new Result(symbols, size);
+        }
+    }
+
+    private static final class UnionFind {
+        private int[] parent = new int[0];
+
+        int find(int element) {
+            grow(element);
+            while (parent[element] != element) {
+                parent[element] = parent[parent[element]];
+                element = parent[element];
+            }
+            return element;
+        }
+
+        void union(int element, int otherElement) {
+            int root = find(element);
+            int otherRoot = find(otherElement);
+            parent[root] = otherRoot;
+        }
+
+        private void grow(int element) {
+            if (element >= parent.length) {
+                int oldLength = parent.length;
+                parent = Arrays.copyOf(parent, Math.max(element + 1, 2 * oldLength));
+                for (int i = oldLength ; i < parent.length ; ++i) {
+                    parent[i] = i;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * DFA that is built while matching.
+ * A DFA state is created the first time the input reaches it and kept in a
+ * table of at most {@code maxStates} states. When the table is full it is
+ * flushed and refilled from the current state. If flushes come too close to
+ * each other to pay off, the rest of the input is simulated on the NFA.
+ * If the NFA changes, the table is rebuilt for it on the next match.
+ * Not thread-safe, use one instance per thread.
+ */
+public final class LazyDFA {
+    public static final int DEFAULT_MAX_STATES = 10000;
+
+    private static final int UNKNOWN = -1;
+    private static final int MIN_CHARACTERS_PER_STATE = 10;
+
+    private final NFA source;
+    private final int maxStates;
+    private CompiledNFA nfa;
+    private int width;
+
+    private final HashMap<StateSet, Integer> indexOfSubset;
+    private final StateSet[] subsets;
+    private final boolean[] accepting;
+    private int[] transitions;
+    private int stateCount;
+    private int startState;
+
+    private long charactersSinceFlush;
+    private long flushCount;
+    private long fallbackCount;
+
+    public LazyDFA(NFA nfa) {
+        this(nfa, DEFAULT_MAX_STATES);
+    }
+
+    public LazyDFA(NFA nfa, int maxStates) {
+        if (maxStates < 3) {
+            throw new IllegalArgumentException("At least three states are needed.");
+        }
+
+        this.source = nfa;
+        this.maxStates = maxStates;
+        this.indexOfSubset = new HashMap<>();
+        this.subsets = new StateSet[maxStates];
+        this.accepting = new boolean[maxStates];
+        recompile(nfa.compile());
+    }
+
+    public boolean matches(CharSequence input) {
+        CompiledNFA compiled = source.compile();
+        if (compiled != nfa) {
+            recompile(compiled);
+        }
+
+        SymbolTable symbolTable = nfa.getSymbolTable();
+        int state = startState;
+
+        for (int i = 0 ; i < input.length() ; ++i) {
+            int symbol = symbolTable.classOf(input.charAt(i));
+            if (symbol == SymbolTable.NO_SYMBOL) {
+                return false;
+            }
+
+            int next = transitions[state * width + symbol];
+            if (next == UNKNOWN) {
+                StateSet from = subsets[state];
+                long[] to = StateSet.newWords(nfa.getStateCount());
+                nfa.step(from.getWords(), symbol, to);
+
+                if (!indexOfSubset.containsKey(new StateSet(to)) && stateCount == maxStates) {
+                    boolean thrashing = charactersSinceFlush < (long) MIN_CHARACTERS_PER_STATE * maxStates;
+                    flush();
+                    if (thrashing) {
+                        ++fallbackCount;
+                        return nfa.matches(from.getWords().clone(), input, i);
+                    }
+                    state = addState(from);
+                }
+
+                next = addState(new StateSet(to));
+                transitions[state * width + symbol] = next;
+            }
+
+            state = next;
+            ++charactersSinceFlush;
+        }
+        return accepting[state];
+    }
+
+    private int addState(StateSet subset) {
+        Integer index = indexOfSubset.get(subset);
+        if (index != null) {
+            return index;
+        }
+
+        index = stateCount++;
+        indexOfSubset.put(subset, index);
+        subsets[index] = subset;
+        accepting[index] = nfa.isAccepting(subset.getWords());
+        return index;
+    }
+
+    /**
+     * Drops every state, which were subsets of the old compiled NFA, without counting a flush.
+     */
+    private void recompile(CompiledNFA compiled) {
+        nfa = compiled;
+        width = compiled.getSymbolTable().getClassCount();
+        if (transitions == null || transitions.length != maxStates * width) {
+            transitions = new int[maxStates * width];
+        }
+        Arrays.fill(subsets, 0, stateCount, null);
+        stateCount = 0;
+        flush();
+    }
+
+    private void flush() {
+        if (stateCount > 0) {
+            ++flushCount;
+        }
+
+        indexOfSubset.clear();
+        Arrays.fill(subsets, 0, stateCount, null);
+        Arrays.fill(transitions, UNKNOWN);
+        stateCount = 0;
+        charactersSinceFlush = 0;
+
+        long[] start = StateSet.newWords(nfa.getStateCount());
+        nfa.addClosure(nfa.getStartState(), start);
+        startState = addState(new StateSet(start));
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public long getFallbackCount() {
+        return fallbackCount;
+    }
+
+}
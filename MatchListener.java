@@ -0,0 +1,9 @@
+/**
+ * Receives every input run by {@link DFA#input(String)} or {@link NFA#input(String)}.
+ * Without a listener nothing is timed.
+ */
+public interface MatchListener {
+
+    void onInput(int length, boolean accepted, long nanos);
+
+}
@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Resumable run of a DFA in table form (see {@link TransitionTable}).
+ * Input can be fed in chunks of any size, the matcher only keeps the current
+ * state, so acceptance of everything fed so far can be asked at any point.
+ * Bytes are decoded with the charset given to the constructor, or without a
+ * charset every byte is one symbol (char 0 to 255).
+ * Buffers are allocated once per matcher and reused for every chunk.
+ * Not thread-safe.
+ */
+public final class Matcher {
+    private static final int BUFFER_SIZE = 8192;
+    private static final long MAPPED_REGION_SIZE = 1L << 26;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+    private final TransitionTable dfa;
+    private final CharsetDecoder decoder;
+    private int state;
+    private char[] chars;
+    private CharBuffer decoded;
+    private ByteBuffer bytes;
+
+    public Matcher(TransitionTable dfa) {
+        this(dfa, null);
+    }
+
+    public Matcher(TransitionTable dfa, Charset charset) {
+        this.dfa = dfa;
+        this.decoder = charset == null ? null : charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        reset();
+    }
+
+    public void reset() {
+        state = dfa.getStartState();
+        if (decoder != null) {
+            decoder.reset();
+        }
+    }
+
+    public boolean isAccepting() {
+        return state != CompiledDFA.NO_STATE && dfa.isAccepting(state);
+    }
+
+    /**
+     * Once rejected, no further input can lead to acceptance.
+     */
+    public boolean isRejected() {
+        return state == CompiledDFA.NO_STATE;
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    public Matcher feed(char[] chunk, int offset, int length) {
+        if (state != CompiledDFA.NO_STATE) {
+            state = dfa.run(state, chunk, offset, length);
+        }
+        return this;
+    }
+
+    public Matcher feed(CharSequence chunk) {
+        if (state != CompiledDFA.NO_STATE) {
+            state = dfa.run(state, chunk);
+        }
+        return this;
+    }
+
+    /**
+     * Consumes all remaining chars of the buffer.
+     */
+    public Matcher feed(CharBuffer chunk) {
+        if (chunk.hasArray()) {
+            feed(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+            chunk.position(chunk.limit());
+            return this;
+        }
+
+        while (chunk.hasRemaining() && state != CompiledDFA.NO_STATE) {
+            state = dfa.step(state, chunk.get());
+        }
+        chunk.position(chunk.limit());
+        return this;
+    }
+
+    /**
+     * Consumes the remaining bytes of the buffer. With a charset, the bytes of an
+     * incomplete character at the end are left in the buffer for the next chunk.
+     */
+    public Matcher feed(ByteBuffer chunk) {
+        if (decoder == null) {
+            while (chunk.hasRemaining() && state != CompiledDFA.NO_STATE) {
+                state = dfa.step(state, (char) (chunk.get() & 0xff));
+            }
+            chunk.position(chunk.limit());
+            return this;
+        }
+
+        CharBuffer out = decodeBuffer();
+        while (true) {
+            out.clear();
+            boolean overflow = decoder.decode(chunk, out, false).isOverflow();
+            out.flip();
+            feed(out);
+            if (!overflow) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * Ends the byte input, so that a trailing incomplete character is reported
+     * as malformed instead of waiting for more bytes.
+     */
+    public Matcher finish(ByteBuffer remaining) {
+        if (decoder == null) {
+            return feed(remaining);
+        }
+
+        CharBuffer out = decodeBuffer();
+        boolean overflow;
+        do {
+            out.clear();
+            overflow = decoder.decode(remaining, out, true).isOverflow();
+            out.flip();
+            feed(out);
+        } while (overflow);
+        do {
+            out.clear();
+            overflow = decoder.flush(out).isOverflow();
+            out.flip();
+            feed(out);
+        } while (overflow);
+        return this;
+    }
+
+    /**
+     * Reads until the end of the stream or until the input is rejected.
+     */
+    public boolean read(Reader reader) throws IOException {
+        if (chars == null) {
+            chars = new char[BUFFER_SIZE];
+        }
+
+        int count;
+        while (state != CompiledDFA.NO_STATE && (count = reader.read(chars, 0, chars.length)) != -1) {
+            feed(chars, 0, count);
+        }
+        return isAccepting();
+    }
+
+    /**
+     * Reads until the end of the stream or until the input is rejected.
+     */
+    public boolean read(InputStream inputStream) throws IOException {
+        if (bytes == null) {
+            bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+
+        bytes.clear();
+        int count;
+        while (state != CompiledDFA.NO_STATE
+                && (count = inputStream.read(bytes.array(), bytes.position(), bytes.remaining())) != -1) {
+            bytes.position(bytes.position() + count);
+            bytes.flip();
+            feed(bytes);
+            bytes.compact();
+        }
+        bytes.flip();
+        finish(bytes);
+        return isAccepting();
+    }
+
+    /**
+     * Maps the file region by region instead of reading it into the heap.
+     */
+    public boolean read(FileChannel channel) throws IOException {
+        return read(channel, MAPPED_REGION_SIZE);
+    }
+
+    boolean read(FileChannel channel, long regionSize) throws IOException {
+        long size = channel.size();
+        MappedByteBuffer region = null;
+        long position = 0;
+        while (position < size && state != CompiledDFA.NO_STATE) {
+            region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, size - position));
+            feed(region);
+            if (region.position() == 0) {
+                break;
+            }
+            position += region.position();
+        }
+
+        finish(region != null && region.hasRemaining() ? region : EMPTY);
+        return isAccepting();
+    }
+
+    private CharBuffer decodeBuffer() {
+        if (decoded == null) {
+            decoded = CharBuffer.allocate(BUFFER_SIZE);
+        }
+        return decoded;
+    }
+
+}
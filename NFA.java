@@ -1,6 +1,7 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.security.InvalidAlgorithmParameterException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -12,6 +13,9 @@ public class NFA {
     private HashMap<String, Set<NState>> transitionFunctions;
     private NState startState;
     private Set<NState> acceptStates;
+    private volatile CompiledNFA compiled;
+    private volatile long checkedModificationCount = -1;
+    private volatile MatchListener matchListener;
 
     public NFA(Set<NState> states, NState startState, Set<NState> acceptStates) {
         this.states = new HashSet<>();
@@ -42,43 +46,23 @@ public class NFA {
     }
 
     public boolean input(String inputString) {
-        List<NState> currentStates = new ArrayList<>();
-        currentStates.add(this.startState);
-
-        if (inputString != null) {
-
-            for (char c : inputString.toCharArray()) {
-                Set<NState> newStates = new HashSet<>();
-                for (int i = 0 ; i < currentStates.size() ; ++i) {
-                    for (NState epsilonState : currentStates.get(i).walk(null)) {
-                        if (!currentStates.contains(epsilonState)) {
-                            currentStates.add(epsilonState);
-                        }
-                    }
-
-                    newStates.addAll(currentStates.get(i).walk(String.valueOf(c)));
-                }
-
-                currentStates.clear();
-                currentStates.addAll(newStates);
+        MatchListener listener = matchListener;
+        if (listener == null) {
+            return compile().matches(inputString == null ? "" : inputString);
+        }
 
-                for (NState state : currentStates) {
-                    for (NState epsilonState : state.walk(null)) {
-                        if (!currentStates.contains(epsilonState)) {
-                            currentStates.add(epsilonState);
-                        }
-                    }
-                }
-            }
+        CompiledNFA compiledNFA = compile();
+        long startTime = System.nanoTime();
+        boolean accepted = compiledNFA.matches(inputString == null ? "" : inputString);
+        listener.onInput(inputString == null ? 0 : inputString.length(), accepted, System.nanoTime() - startTime);
+        return accepted;
+    }
 
-        }
-        
-        for (NState state : currentStates) {
-            if (acceptStates.contains(state)) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Null removes the listener.
+     */
+    public void setMatchListener(MatchListener matchListener) {
+        this.matchListener = matchListener;
     }
 
     /**
@@ -90,89 +74,99 @@ public class NFA {
                                     String startStateStr, 
                                     String[] acceptStatesStr) 
                                     throws InvalidAlgorithmParameterException {
-        NState startState = null;
-        Set<NState> acceptStates = new HashSet<>();
-        Set<NState> states = new HashSet<>();
-        
+        NFABuilder builder = new NFABuilder();
+
         for (int r = 1 ; r < tableOfFunctionTransitions.length ; ++r) {
-            NState state = findState(states, tableOfFunctionTransitions[r][0][0]);
-            if (state == null) {
-                state = new NState(tableOfFunctionTransitions[r][0][0]);
-                states.add(state);
-            }
+            int state = builder.state(tableOfFunctionTransitions[r][0][0]);
 
             for (int c = 1 ; c < tableOfFunctionTransitions[r].length ; ++c) {
                 for (int i = 0 ; i < tableOfFunctionTransitions[r][c].length ; ++i) {
-                    String stateName = tableOfFunctionTransitions[r][c][i];
-                    NState selectedState = findState(states, stateName);
-                    if (selectedState == null) {
-                        selectedState = new NState(stateName);
-                        states.add(selectedState);
-                    }
-                    state.putNextState(tableOfFunctionTransitions[0][c][0], selectedState);
+                    int selectedState = builder.state(tableOfFunctionTransitions[r][c][i]);
+                    builder.addTransition(state, tableOfFunctionTransitions[0][c][0], selectedState);
                 }
             }
         }
 
-        for (NState state : states) {
-            if (state.getStateName().equals(startStateStr)) {
-                startState = state;
-            }
-            if (Arrays.asList(acceptStatesStr).contains(state.getStateName())) {
-                acceptStates.add(state);
+        int startState = builder.indexOf(startStateStr);
+        if (startState >= 0) {
+            builder.setStartState(startState);
+        }
+        for (String acceptStateStr : acceptStatesStr) {
+            int acceptState = builder.indexOf(acceptStateStr);
+            if (acceptState >= 0) {
+                builder.addAcceptState(acceptState);
             }
         }
+        return builder.build();
+    }
 
-        if (startState == null) {
-            throw new InvalidAlgorithmParameterException("No start state detected.");
-        } else if (acceptStates.isEmpty()) {
-            throw new InvalidAlgorithmParameterException("No accept state detected.");
+    /**
+     * Recompiled whenever one of its own NStates has been changed since the
+     * last compilation. The states are only compared when some NState
+     * anywhere has changed since the last call.
+     * The result is immutable and can be shared between threads.
+     */
+    public CompiledNFA compile() {
+        CompiledNFA compiledNFA = compiled;
+        long modificationCount = NState.getModificationCount();
+        if (compiledNFA != null && modificationCount == checkedModificationCount) {
+            return compiledNFA;
         }
-
-        return new NFA(states, startState, acceptStates);
-    }
-    
-    private static NState findState(Set<NState> states, String stateName) {
-        for (NState state : states) {
-            if (state.getStateName().equals(stateName)) {
-                return state;
-            }
+        if (compiledNFA == null || !compiledNFA.isCurrent()) {
+            compiledNFA = CompiledNFA.compile(this);
+            compiled = compiledNFA;
         }
-        return null;
+        checkedModificationCount = modificationCount;
+        return compiledNFA;
     }
 
-    public Set<NState> epsilonClosure(NState state) {
-        HashSet<NState> epsilonClosureStates = new HashSet<>();
-        epsilonClosureStates.add(state);
-        epsilonClosureStates.addAll(recursiveEpsilonClosure(epsilonClosureStates, state));
-        return epsilonClosureStates;
+    /**
+     * Whether {@link #compile()} would return its cached form without compiling.
+     */
+    public boolean isCompiled() {
+        CompiledNFA compiledNFA = compiled;
+        return compiledNFA != null
+                && (NState.getModificationCount() == checkedModificationCount || compiledNFA.isCurrent());
     }
 
-    private Set<NState> recursiveEpsilonClosure(Set<NState> epsilonClosureStates, NState state) {
-        Set<NState> epsilonStates = state.walk(null);
-        for (NState epsilonState : epsilonStates) {
-            if (!epsilonClosureStates.contains(epsilonState)) {
-                epsilonClosureStates.add(state);
-                epsilonStates.addAll(recursiveEpsilonClosure(epsilonClosureStates, epsilonState));
-            }
+    public Set<NState> epsilonClosure(NState state) {
+        CompiledNFA compiledNFA = compile();
+        int index = compiledNFA.indexOf(state);
+        if (index < 0) {
+            return unindexedEpsilonClosure(state);
+        }
+
+        long[] closure = StateSet.newWords(compiledNFA.getStateCount());
+        compiledNFA.addClosure(index, closure);
+
+        Set<NState> epsilonClosureStates = new HashSet<>();
+        for (int s = StateSet.nextMember(closure, 0) ; s >= 0 ; s = StateSet.nextMember(closure, s + 1)) {
+            epsilonClosureStates.add(compiledNFA.getState(s));
         }
-        return epsilonStates;
+        return epsilonClosureStates;
     }
 
     public Set<NState> epsilonClosureWithoutSelf(NState state) {
-        HashSet<NState> epsilonClosureStates = new HashSet<>();
-        epsilonClosureStates.addAll(recursiveEpsilonClosureWithoutSelf(epsilonClosureStates, state));
+        Set<NState> epsilonClosureStates = new HashSet<>();
+        for (NState epsilonState : state.walk(null)) {
+            epsilonClosureStates.addAll(epsilonClosure(epsilonState));
+        }
         return epsilonClosureStates;
     }
 
-    private Set<NState> recursiveEpsilonClosureWithoutSelf(Set<NState> epsilonClosureStates, NState state) {
-        Set<NState> epsilonStates = state.walk(null);
-        for (NState epsilonState : epsilonStates) {
-            if (!epsilonClosureStates.contains(epsilonState)) {
-                epsilonStates.addAll(recursiveEpsilonClosureWithoutSelf(epsilonClosureStates, epsilonState));
+    private static Set<NState> unindexedEpsilonClosure(NState state) {
+        Set<NState> epsilonClosureStates = new HashSet<>();
+        List<NState> pending = new ArrayList<>();
+        epsilonClosureStates.add(state);
+        pending.add(state);
+        while (!pending.isEmpty()) {
+            for (NState epsilonState : pending.remove(pending.size() - 1).walk(null)) {
+                if (epsilonClosureStates.add(epsilonState)) {
+                    pending.add(epsilonState);
+                }
             }
         }
-        return epsilonStates;
+        return epsilonClosureStates;
     }
 
     public Set<NState> getStates() {
@@ -191,4 +185,22 @@ public class NFA {
         return alphabet;
     }
 
+    /**
+     * Streams the NFA in the given format, see {@link AutomatonExporter}.
+     */
+    public void export(AutomatonExporter.Format format, Appendable out) throws IOException {
+        AutomatonExporter.export(this, format, out);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        try {
+            export(AutomatonExporter.Format.TEXT, result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
 }
@@ -0,0 +1,42 @@
+import java.security.InvalidAlgorithmParameterException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collects states and transitions of an NFA by integer id and creates the
+ * NStates in one pass at the end, so building is linear in the number of
+ * transitions. A null symbol is an epsilon transition.
+ */
+public final class NFABuilder extends AutomatonBuilder<NFABuilder> {
+
+    public NFABuilder addTransitions(int fromState, String symbol, int... toStates) {
+        for (int toState : toStates) {
+            addTransition(fromState, symbol, toState);
+        }
+        return this;
+    }
+
+    /**
+     * States are created in id order, so a compiled form numbers them the same way.
+     * @throws InvalidAlgorithmParameterException if no start or no accept state was set
+     */
+    public NFA build() throws InvalidAlgorithmParameterException {
+        checkStartAndAccept();
+
+        NState[] states = new NState[names.size()];
+        for (int s = 0 ; s < states.length ; ++s) {
+            states[s] = new NState(nameOf(s));
+        }
+        for (int t = 0 ; t < transitionCount ; ++t) {
+            states[from[t]].putNextState(symbols.get(symbolOf[t]), states[to[t]]);
+        }
+
+        Set<NState> accept = new HashSet<>();
+        for (int s = acceptStates.nextSetBit(0) ; s >= 0 ; s = acceptStates.nextSetBit(s + 1)) {
+            accept.add(states[s]);
+        }
+        return new NFA(new HashSet<>(Arrays.asList(states)), states[startState], accept);
+    }
+
+}
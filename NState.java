@@ -1,10 +1,24 @@
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class NState extends State {
+    private static final AtomicLong modificationCount = new AtomicLong();
+
+    /**
+     * Told about every transition added to the states it is registered with.
+     */
+    public interface TransitionListener {
+        void onTransitionAdded(NState state, String symbol, NState nextState);
+    }
+
     private HashMap<String, Set<NState>> nextStates;
+    private List<TransitionListener> listeners;
+    private int version;
 
     public NState(String stateName) {
         super(stateName);
@@ -20,7 +34,45 @@ public class NState extends State {
             nextStates.put(symbol, new HashSet<>());
         }
 
-        return nextStates.get(symbol).add(nextState);
+        if (nextStates.get(symbol).add(nextState)) {
+            ++version;
+            modificationCount.incrementAndGet();
+            if (listeners != null) {
+                for (int i = 0 ; i < listeners.size() ; ++i) {
+                    listeners.get(i).onTransitionAdded(this, symbol, nextState);
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public void addTransitionListener(TransitionListener listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+        }
+        listeners.add(listener);
+    }
+
+    public void removeTransitionListener(TransitionListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Incremented on every change to any NState. While it is unchanged no
+     * compiled form can be stale, so checking it is a cheap first test.
+     */
+    public static long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    /**
+     * Incremented on every change to this state.
+     */
+    public int getVersion() {
+        return version;
     }
 
     public Set<String> findSymbolToState(NState nextState) {
@@ -34,6 +86,10 @@ public class NState extends State {
         return symbols;
     }
 
+    public Set<String> getSymbols() {
+        return nextStates.keySet();
+    }
+
     public Set<NState> getNextStates(String symbol) {
         return nextStates.get(symbol);
     }
@@ -0,0 +1,324 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Table form of a DFA stored outside the Java heap, in direct buffers.
+ * The transitions, the accept set and the char to symbol class map live in
+ * native memory, so a DFA with tens of millions of transitions adds only a
+ * few small objects to the heap the garbage collector scans. State ids are
+ * stored as shorts when there are at most 32767 states, as ints otherwise.
+ * Transitions are split into chunks of 2^26 entries, so the table is not
+ * limited to 2 GB.
+ * The memory is owned by this object. After {@link #close()} matching throws
+ * IllegalStateException and the buffers are freed once they are collected.
+ * Never modified after construction, so it can be shared between threads
+ * until it is closed.
+ */
+public final class OffHeapDFA implements Recognizer, TransitionTable, AutoCloseable {
+    private static final int CHUNK_SHIFT = 26;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final SymbolTable symbolTable;
+    private final int width;
+    private final int stateCount;
+    private final int startState;
+    private final long byteSize;
+    private final boolean partial;
+    private ShortBuffer[] shortChunks;
+    private IntBuffer[] intChunks;
+    private IntBuffer classOfChar;
+    private LongBuffer accepting;
+
+    private OffHeapDFA(SymbolTable symbolTable, TableWriter table, BitSet acceptStates, int stateCount, int startState,
+                       boolean partial) {
+        this.symbolTable = symbolTable;
+        this.partial = partial;
+        this.width = symbolTable.getClassCount();
+        this.stateCount = stateCount;
+        this.startState = startState;
+
+        long tableBytes = 0;
+        if (stateCount <= Short.MAX_VALUE) {
+            shortChunks = table.toShortChunks((long) stateCount * width);
+            for (ShortBuffer chunk : shortChunks) {
+                tableBytes += 2L * chunk.capacity();
+            }
+        } else {
+            intChunks = table.toIntChunks();
+            for (IntBuffer chunk : intChunks) {
+                tableBytes += 4L * chunk.capacity();
+            }
+        }
+
+        classOfChar = allocate(symbolTable.getCharLimit(), Integer.BYTES).asIntBuffer();
+        for (int c = 0 ; c < symbolTable.getCharLimit() ; ++c) {
+            classOfChar.put(c, symbolTable.classOf((char) c));
+        }
+
+        long[] acceptWords = Arrays.copyOf(acceptStates.toLongArray(), (stateCount + 63) >>> 6);
+        accepting = allocate(acceptWords.length, Long.BYTES).asLongBuffer();
+        accepting.put(acceptWords).clear();
+
+        this.byteSize = tableBytes + 4L * classOfChar.capacity() + 8L * accepting.capacity();
+    }
+
+    /**
+     * Copies the table of {@code dfa}, state ids are kept.
+     */
+    public static OffHeapDFA copyOf(CompiledDFA dfa) {
+        SymbolTable symbolTable = dfa.getSymbolTable();
+        int width = symbolTable.getClassCount();
+        TableWriter table = new TableWriter();
+        BitSet acceptStates = new BitSet(dfa.getStateCount());
+
+        for (int s = 0 ; s < dfa.getStateCount() ; ++s) {
+            for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+                table.set((long) s * width + symbolClass, dfa.getNextState(s, symbolClass));
+            }
+            acceptStates.set(s, dfa.isAccepting(s));
+        }
+        return new OffHeapDFA(symbolTable, table, acceptStates, dfa.getStateCount(), dfa.getStartState(), dfa.isPartial());
+    }
+
+    /**
+     * Subset construction that writes each row straight into native memory,
+     * no DState is created. The empty subset is not a state, transitions to
+     * it are missing and the table is partial. The start state is 0.
+     */
+    public static OffHeapDFA convertFrom(NFA nfa) {
+        CompiledNFA compiledNFA = nfa.compile();
+        SymbolTable symbolTable = compiledNFA.getSymbolTable();
+        int width = symbolTable.getClassCount();
+        HashMap<StateSet, Integer> indexOfSubset = new HashMap<>();
+        List<StateSet> subsets = new ArrayList<>();
+        BitSet acceptStates = new BitSet();
+        TableWriter table = new TableWriter();
+
+        long[] startStates = StateSet.newWords(compiledNFA.getStateCount());
+        compiledNFA.addClosure(compiledNFA.getStartState(), startStates);
+        addSubset(compiledNFA, new StateSet(startStates), indexOfSubset, subsets, acceptStates);
+
+        long[] walkedStates = StateSet.newWords(compiledNFA.getStateCount());
+        for (int i = 0 ; i < subsets.size() ; ++i) {
+            long[] fromStates = subsets.get(i).getWords();
+
+            for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+                Arrays.fill(walkedStates, 0);
+                compiledNFA.step(fromStates, symbolClass, walkedStates);
+
+                int next = CompiledDFA.NO_STATE;
+                if (StateSet.nextMember(walkedStates, 0) >= 0) {
+                    Integer index = indexOfSubset.get(new StateSet(walkedStates));
+                    next = index != null ? index
+                            : addSubset(compiledNFA, new StateSet(walkedStates.clone()), indexOfSubset, subsets, acceptStates);
+                }
+                table.set((long) i * width + symbolClass, next);
+            }
+        }
+        return new OffHeapDFA(symbolTable, table, acceptStates, subsets.size(), 0, true);
+    }
+
+    private static int addSubset(CompiledNFA compiledNFA, StateSet subset, HashMap<StateSet, Integer> indexOfSubset,
+                                 List<StateSet> subsets, BitSet acceptStates) {
+        int index = subsets.size();
+        indexOfSubset.put(subset, index);
+        subsets.add(subset);
+        if (compiledNFA.isAccepting(subset.getWords())) {
+            acceptStates.set(index);
+        }
+        return index;
+    }
+
+    private static ByteBuffer allocate(long count, int bytes) {
+        return ByteBuffer.allocateDirect(Math.toIntExact(count * bytes)).order(ByteOrder.nativeOrder());
+    }
+
+    private int next(int state, int symbolClass) {
+        long entry = (long) state * width + symbolClass;
+        int chunk = (int) (entry >>> CHUNK_SHIFT);
+        int offset = (int) entry & CHUNK_MASK;
+        return shortChunks != null ? shortChunks[chunk].get(offset) : intChunks[chunk].get(offset);
+    }
+
+    private void checkOpen() {
+        if (classOfChar == null) {
+            throw new IllegalStateException("The DFA is closed.");
+        }
+    }
+
+    @Override
+    public int step(int state, char c) {
+        checkOpen();
+        int symbolClass = c < classOfChar.capacity() ? classOfChar.get(c) : SymbolTable.NO_SYMBOL;
+        return symbolClass == SymbolTable.NO_SYMBOL ? CompiledDFA.NO_STATE : next(state, symbolClass);
+    }
+
+    @Override
+    public int run(int state, CharSequence input) {
+        checkOpen();
+        int charLimit = classOfChar.capacity();
+        for (int i = 0 ; i < input.length() && state != CompiledDFA.NO_STATE ; ++i) {
+            char c = input.charAt(i);
+            int symbolClass = c < charLimit ? classOfChar.get(c) : SymbolTable.NO_SYMBOL;
+            state = symbolClass == SymbolTable.NO_SYMBOL ? CompiledDFA.NO_STATE : next(state, symbolClass);
+        }
+        return state;
+    }
+
+    @Override
+    public int run(int state, char[] input, int offset, int length) {
+        checkOpen();
+        int charLimit = classOfChar.capacity();
+        for (int i = offset ; i < offset + length && state != CompiledDFA.NO_STATE ; ++i) {
+            char c = input[i];
+            int symbolClass = c < charLimit ? classOfChar.get(c) : SymbolTable.NO_SYMBOL;
+            state = symbolClass == SymbolTable.NO_SYMBOL ? CompiledDFA.NO_STATE : next(state, symbolClass);
+        }
+        return state;
+    }
+
+    @Override
+    public boolean matches(CharSequence input) {
+        int state = run(startState, input);
+        return state != CompiledDFA.NO_STATE && isAccepting(state);
+    }
+
+    public boolean matches(char[] input, int offset, int length) {
+        int state = run(startState, input, offset, length);
+        return state != CompiledDFA.NO_STATE && isAccepting(state);
+    }
+
+    @Override
+    public boolean isAccepting(int state) {
+        checkOpen();
+        return (accepting.get(state >>> 6) & (1L << state)) != 0;
+    }
+
+    public int getNextState(int state, int symbolClass) {
+        checkOpen();
+        return next(state, symbolClass);
+    }
+
+    @Override
+    public int getStartState() {
+        return startState;
+    }
+
+    @Override
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * 2 or 4.
+     */
+    public int getStateIdBytes() {
+        return stateCount <= Short.MAX_VALUE ? Short.BYTES : Integer.BYTES;
+    }
+
+    /**
+     * Bytes of native memory held by this DFA.
+     */
+    public long getByteSize() {
+        return byteSize;
+    }
+
+    /**
+     * Copies the table back to the heap, partial if the copied one was.
+     * States are named "q" followed by their id.
+     */
+    public CompiledDFA toCompiledDFA() {
+        checkOpen();
+        long entries = (long) stateCount * width;
+        if (entries > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many transitions for a heap table: " + entries + ".");
+        }
+
+        int[] transitions = new int[(int) entries];
+        boolean[] acceptStates = new boolean[stateCount];
+        String[] stateNames = new String[stateCount];
+        for (int s = 0 ; s < stateCount ; ++s) {
+            for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+                transitions[s * width + symbolClass] = next(s, symbolClass);
+            }
+            acceptStates[s] = isAccepting(s);
+            stateNames[s] = "q" + s;
+        }
+        return new CompiledDFA(symbolTable, transitions, acceptStates, startState, stateNames, partial);
+    }
+
+    /**
+     * Drops the buffers. Must not be called while another thread is matching.
+     */
+    @Override
+    public void close() {
+        shortChunks = null;
+        intChunks = null;
+        classOfChar = null;
+        accepting = null;
+    }
+
+    /**
+     * Growable int table in native memory. Every chunk but the last one is
+     * full, the last one doubles as it fills.
+     */
+    private static final class TableWriter {
+        private final List<IntBuffer> chunks = new ArrayList<>();
+
+        void set(long entry, int value) {
+            int chunk = (int) (entry >>> CHUNK_SHIFT);
+            int offset = (int) entry & CHUNK_MASK;
+            while (chunks.size() <= chunk) {
+                if (!chunks.isEmpty()) {
+                    grow(chunks.size() - 1, CHUNK_SIZE);
+                }
+                chunks.add(allocate(1024, Integer.BYTES).asIntBuffer());
+            }
+            if (chunks.get(chunk).capacity() <= offset) {
+                grow(chunk, Math.min(CHUNK_SIZE, Math.max(2 * chunks.get(chunk).capacity(), offset + 1)));
+            }
+            chunks.get(chunk).put(offset, value);
+        }
+
+        private void grow(int chunk, int capacity) {
+            IntBuffer old = chunks.get(chunk);
+            if (old.capacity() >= capacity) {
+                return;
+            }
+            IntBuffer grown = allocate(capacity, Integer.BYTES).asIntBuffer();
+            grown.put(old.duplicate().clear()).clear();
+            chunks.set(chunk, grown);
+        }
+
+        IntBuffer[] toIntChunks() {
+            return chunks.toArray(new IntBuffer[0]);
+        }
+
+        ShortBuffer[] toShortChunks(long entries) {
+            ShortBuffer[] shortChunks = new ShortBuffer[(int) ((entries + CHUNK_MASK) >>> CHUNK_SHIFT)];
+            for (int c = 0 ; c < shortChunks.length ; ++c) {
+                int size = (int) Math.min(CHUNK_SIZE, entries - ((long) c << CHUNK_SHIFT));
+                shortChunks[c] = allocate(size, Short.BYTES).asShortBuffer();
+                for (int i = 0 ; i < size ; ++i) {
+                    shortChunks[c].put(i, (short) chunks.get(c).get(i));
+                }
+            }
+            chunks.clear();
+            return shortChunks;
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Subset construction that expands the worklist one breadth-first level at a
+ * time, with the subsets of a level expanded concurrently.
+ * New subsets are interned in a ConcurrentHashMap, whose computeIfAbsent
+ * hands out each DFA state index exactly once. The result has the same states,
+ * names and transitions as {@link DFA#convertFrom(NFA)}, only the order in
+ * which indices are assigned differs.
+ */
+public final class ParallelSubsetConstruction {
+    private final CompiledNFA nfa;
+    private final int width;
+    private final ConcurrentHashMap<StateSet, Integer> indexOfSubset;
+    private final ConcurrentLinkedQueue<StateSet> discovered;
+    private final AtomicInteger stateCount;
+    private final List<StateSet> subsets;
+    private final List<int[]> rows;
+
+    private ParallelSubsetConstruction(CompiledNFA nfa) {
+        this.nfa = nfa;
+        this.width = nfa.getSymbolTable().getClassCount();
+        this.indexOfSubset = new ConcurrentHashMap<>();
+        this.discovered = new ConcurrentLinkedQueue<>();
+        this.stateCount = new AtomicInteger();
+        this.subsets = new ArrayList<>();
+        this.rows = new ArrayList<>();
+    }
+
+    public static DFA convert(NFA nfa, ForkJoinPool pool) {
+        ParallelSubsetConstruction construction = new ParallelSubsetConstruction(nfa.compile());
+        return pool.submit(construction::run).join();
+    }
+
+    private DFA run() {
+        intern(new StateSet(StateSet.newWords(nfa.getStateCount())));
+        long[] startStates = StateSet.newWords(nfa.getStateCount());
+        nfa.addClosure(nfa.getStartState(), startStates);
+        int startState = intern(new StateSet(startStates));
+
+        int levelStart = 0;
+        while (true) {
+            collectDiscovered();
+            int levelEnd = subsets.size();
+            if (levelStart == levelEnd) {
+                break;
+            }
+
+            int[][] levelRows = new int[levelEnd - levelStart][];
+            int offset = levelStart;
+            IntStream.range(levelStart, levelEnd).parallel().forEach(i -> levelRows[i - offset] = expand(subsets.get(i)));
+            rows.addAll(Arrays.asList(levelRows));
+            levelStart = levelEnd;
+        }
+
+        return toDFA(startState);
+    }
+
+    private int[] expand(StateSet subset) {
+        int[] row = new int[width];
+        long[] walkedStates = StateSet.newWords(nfa.getStateCount());
+
+        for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+            Arrays.fill(walkedStates, 0);
+            nfa.step(subset.getWords(), symbolClass, walkedStates);
+
+            Integer next = indexOfSubset.get(new StateSet(walkedStates));
+            row[symbolClass] = next != null ? next : intern(new StateSet(walkedStates.clone()));
+        }
+        return row;
+    }
+
+    private int intern(StateSet subset) {
+        return indexOfSubset.computeIfAbsent(subset, key -> {
+            discovered.add(key);
+            return stateCount.getAndIncrement();
+        });
+    }
+
+    /**
+     * Places the subsets found by the last level at their indices.
+     */
+    private void collectDiscovered() {
+        int count = stateCount.get();
+        StateSet[] level = new StateSet[count - subsets.size()];
+        for (StateSet subset = discovered.poll() ; subset != null ; subset = discovered.poll()) {
+            level[indexOfSubset.get(subset) - subsets.size()] = subset;
+        }
+        subsets.addAll(Arrays.asList(level));
+    }
+
+    private DFA toDFA(int startState) {
+        SymbolTable symbolTable = nfa.getSymbolTable();
+        DState[] dStates = new DState[subsets.size()];
+        Set<DState> acceptStates = new HashSet<>();
+
+        for (int i = 0 ; i < dStates.length ; ++i) {
+            dStates[i] = new DState(DFA.subsetName(nfa, subsets.get(i)));
+            if (nfa.isAccepting(subsets.get(i).getWords())) {
+                acceptStates.add(dStates[i]);
+            }
+        }
+        for (int i = 0 ; i < dStates.length ; ++i) {
+            for (int symbol = 0 ; symbol < symbolTable.size() ; ++symbol) {
+                dStates[i].putNextState(symbolTable.getSymbol(symbol), dStates[rows.get(i)[symbolTable.classOf(symbol)]]);
+            }
+        }
+
+        return new DFA(new HashSet<>(Arrays.asList(dStates)), dStates[startState], acceptStates);
+    }
+
+}
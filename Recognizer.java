@@ -0,0 +1,31 @@
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Immutable automaton that can be shared by any number of threads.
+ */
+public interface Recognizer {
+
+    boolean matches(CharSequence input);
+
+    /**
+     * Matches the inputs on the common fork-join pool.
+     * @return bit i is set if input i is accepted
+     */
+    default BitSet matchAll(List<? extends CharSequence> inputs) {
+        boolean[] accepted = new boolean[inputs.size()];
+        IntStream.range(0, inputs.size()).parallel().forEach(i -> accepted[i] = matches(inputs.get(i)));
+        return RowTable.toBitSet(accepted);
+    }
+
+    /**
+     * @return bit i is set if the i-th input of the stream is accepted
+     */
+    default BitSet matchAll(Stream<? extends CharSequence> inputs) {
+        return matchAll(inputs.collect(Collectors.toList()));
+    }
+
+}
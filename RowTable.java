@@ -0,0 +1,79 @@
+import java.util.BitSet;
+
+/**
+ * Flat table form of a compiled DFA for the matching loops: the class of each
+ * char is looked up in one array and transitions hold the row offset of the
+ * next state instead of its id, so a step is one load and one add.
+ * Used by {@link InterleavedMatcher} and {@link BytecodeCompiler#interpret(DFA)}.
+ * Never modified after construction, so it can be shared between threads.
+ */
+final class RowTable implements Recognizer {
+    private final int[] classOfChar;
+    private final int[] transitions;
+    private final boolean[] accepting;
+    private final int width;
+    private final int startRow;
+
+    RowTable(CompiledDFA dfa) {
+        SymbolTable symbolTable = dfa.getSymbolTable();
+        this.width = Math.max(1, symbolTable.getClassCount());
+        this.classOfChar = new int[symbolTable.getCharLimit()];
+        for (int c = 0 ; c < classOfChar.length ; ++c) {
+            classOfChar[c] = symbolTable.classOf((char) c);
+        }
+
+        this.transitions = new int[dfa.getStateCount() * width];
+        this.accepting = new boolean[dfa.getStateCount()];
+        for (int s = 0 ; s < dfa.getStateCount() ; ++s) {
+            for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+                int next = symbolClass < symbolTable.getClassCount() ? dfa.getNextState(s, symbolClass) : CompiledDFA.NO_STATE;
+                transitions[s * width + symbolClass] = next == CompiledDFA.NO_STATE ? next : next * width;
+            }
+            accepting[s] = dfa.isAccepting(s);
+        }
+        this.startRow = dfa.getStartState() * width;
+    }
+
+    int getStartRow() {
+        return startRow;
+    }
+
+    /**
+     * @return the row reached on {@code c}, or NO_STATE if there is no transition
+     */
+    int step(int row, char c) {
+        int symbolClass = c < classOfChar.length ? classOfChar[c] : SymbolTable.NO_SYMBOL;
+        return symbolClass == SymbolTable.NO_SYMBOL ? CompiledDFA.NO_STATE : transitions[row + symbolClass];
+    }
+
+    boolean isAccepting(int row) {
+        return accepting[row / width];
+    }
+
+    @Override
+    public boolean matches(CharSequence input) {
+        int row = startRow;
+        for (int i = 0 ; i < input.length() ; ++i) {
+            row = step(row, input.charAt(i));
+            if (row == CompiledDFA.NO_STATE) {
+                return false;
+            }
+        }
+        return accepting[row / width];
+    }
+
+    /**
+     * Collects the results of a {@link Recognizer#matchAll(java.util.List)}.
+     * @return bit i is set if {@code accepted[i]} is
+     */
+    static BitSet toBitSet(boolean[] accepted) {
+        BitSet result = new BitSet(accepted.length);
+        for (int i = 0 ; i < accepted.length ; ++i) {
+            if (accepted[i]) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,331 @@
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Finds the occurrences of the language of a compiled DFA inside a text.
+ *
+ * The forward scan runs the DFA from every position at once: the start state
+ * is implicitly re-entered before every character. The running copies
+ * (threads) are kept in an ordered list, earliest start first, and lists are
+ * turned into states of a lazily built DFA, so the scan does one table lookup
+ * per character once the states it needs exist. A thread that reaches a dead
+ * state of the {@link StateAnalysis} is dropped.
+ *
+ * With {@link Mode#LEFTMOST_LONGEST} the first accepting thread cuts all later
+ * threads and stops new starts, so the scan ends where the leftmost match can
+ * no longer grow. Its start is then recovered by running a DFA of the reversed
+ * language backwards from the end. Matches do not overlap.
+ * With {@link Mode#ALL} every (start, end) pair is reported, ordered by end and
+ * then from the nearest start backwards.
+ *
+ * The forward scan is one pass only when matches cannot be extended past their
+ * end. Otherwise the text between a match end and the position where its last
+ * thread died is scanned again by the next search, so for a language like
+ * {a} ∪ a⁺b on "aaa…" leftmost-longest search is quadratic. Every reported end
+ * also costs a reverse scan about as long as the longest match ending there, so
+ * {@link Mode#ALL} is quadratic whenever the number of matches is.
+ *
+ * Not thread-safe, use one instance per thread.
+ */
+public final class Searcher {
+    public static final int DEFAULT_MAX_STATES = 10000;
+
+    private static final int UNKNOWN = -1;
+
+    public enum Mode {
+        LEFTMOST_LONGEST, ALL
+    }
+
+    public interface Callback {
+        /**
+         * @return false to stop the search
+         */
+        boolean onMatch(int start, int end);
+    }
+
+    private final CompiledDFA dfa;
+    private final CompiledDFA reverse;
+    private final StateAnalysis analysis;
+    private final StateAnalysis reverseAnalysis;
+    private final Mode mode;
+    private final int width;
+    private final int maxStates;
+
+    private final HashMap<ThreadList, Integer> indexOfList;
+    private final ThreadList[] lists;
+    private final boolean[] accepting;
+    private final int[] transitions;
+    private int stateCount;
+    private int startState;
+
+    private final int[] buffer;
+    private final int[] seen;
+    private int generation;
+
+    public Searcher(CompiledDFA dfa) {
+        this(dfa, Mode.LEFTMOST_LONGEST);
+    }
+
+    public Searcher(CompiledDFA dfa, Mode mode) {
+        this(dfa, mode, DEFAULT_MAX_STATES);
+    }
+
+    public Searcher(CompiledDFA dfa, Mode mode, int maxStates) {
+        if (maxStates < 3) {
+            throw new IllegalArgumentException("At least three states are needed.");
+        }
+
+        this.dfa = dfa;
+        this.reverse = reverse(dfa);
+        this.analysis = dfa.analyze();
+        this.reverseAnalysis = reverse.analyze();
+        this.mode = mode;
+        this.width = dfa.getSymbolTable().getClassCount();
+        this.maxStates = maxStates;
+
+        this.indexOfList = new HashMap<>();
+        this.lists = new ThreadList[maxStates];
+        this.accepting = new boolean[maxStates];
+        this.transitions = new int[maxStates * (width + 1)];
+        this.buffer = new int[dfa.getStateCount() + 1];
+        this.seen = new int[dfa.getStateCount()];
+        flush();
+    }
+
+    /**
+     * @return the number of matches reported
+     */
+    public int search(CharSequence text, Callback callback) {
+        return search(text, 0, text.length(), callback);
+    }
+
+    /**
+     * Offsets passed to the callback are indices into {@code text}.
+     */
+    public int search(char[] text, int offset, int length, Callback callback) {
+        return search(CharBuffer.wrap(text), offset, offset + length, callback);
+    }
+
+    private int search(CharSequence text, int from, int to, Callback callback) {
+        if (analysis.isDead(dfa.getStartState())) {
+            return 0;
+        }
+        return mode == Mode.ALL ? searchAll(text, from, to, callback) : searchLeftmostLongest(text, from, to, callback);
+    }
+
+    private int searchLeftmostLongest(CharSequence text, int from, int to, Callback callback) {
+        int count = 0;
+        while (from <= to) {
+            int state = startState;
+            int end = accepting[state] ? from : -1;
+            for (int i = from ; i < to && lists[state].threads.length > 0 ; ++i) {
+                state = next(state, text.charAt(i));
+                if (accepting[state]) {
+                    end = i + 1;
+                }
+            }
+            if (end < 0) {
+                break;
+            }
+
+            int start = end;
+            int reverseState = reverse.getStartState();
+            for (int i = end - 1 ; i >= from ; --i) {
+                reverseState = reverse.step(reverseState, text.charAt(i));
+                if (reverseState == CompiledDFA.NO_STATE || reverseAnalysis.isDead(reverseState)) {
+                    break;
+                }
+                if (reverse.isAccepting(reverseState)) {
+                    start = i;
+                }
+            }
+
+            ++count;
+            if (!callback.onMatch(start, end)) {
+                break;
+            }
+            from = end > start ? end : end + 1;
+        }
+        return count;
+    }
+
+    private int searchAll(CharSequence text, int from, int to, Callback callback) {
+        int count = 0;
+        int state = startState;
+        for (int end = from ; end <= to ; ++end) {
+            if (end > from) {
+                state = next(state, text.charAt(end - 1));
+            }
+            if (!accepting[state]) {
+                continue;
+            }
+
+            int reverseState = reverse.getStartState();
+            if (reverse.isAccepting(reverseState)) {
+                ++count;
+                if (!callback.onMatch(end, end)) {
+                    return count;
+                }
+            }
+            for (int i = end - 1 ; i >= from ; --i) {
+                reverseState = reverse.step(reverseState, text.charAt(i));
+                if (reverseState == CompiledDFA.NO_STATE || reverseAnalysis.isDead(reverseState)) {
+                    break;
+                }
+                if (reverse.isAccepting(reverseState)) {
+                    ++count;
+                    if (!callback.onMatch(i, end)) {
+                        return count;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private int next(int state, char c) {
+        int symbolClass = dfa.getSymbolTable().classOf(c);
+        int column = symbolClass == SymbolTable.NO_SYMBOL ? width : symbolClass;
+        int next = transitions[state * (width + 1) + column];
+        if (next != UNKNOWN) {
+            return next;
+        }
+
+        ThreadList list = step(lists[state], symbolClass);
+        if (!indexOfList.containsKey(list) && stateCount == maxStates) {
+            ThreadList from = lists[state];
+            flush();
+            state = addState(from);
+        }
+        next = addState(list);
+        transitions[state * (width + 1) + column] = next;
+        return next;
+    }
+
+    /**
+     * Moves every thread by one symbol class (NO_SYMBOL kills all of them),
+     * keeping the first copy of each state, then adds a new start.
+     */
+    private ThreadList step(ThreadList list, int symbolClass) {
+        ++generation;
+        int count = 0;
+        if (symbolClass != SymbolTable.NO_SYMBOL) {
+            for (int thread : list.threads) {
+                int next = dfa.getNextState(thread, symbolClass);
+                if (next != CompiledDFA.NO_STATE && !analysis.isDead(next) && seen[next] != generation) {
+                    seen[next] = generation;
+                    buffer[count++] = next;
+                }
+            }
+        }
+        return normalize(count, list.injecting);
+    }
+
+    private ThreadList normalize(int count, boolean injecting) {
+        int start = dfa.getStartState();
+        if (injecting && seen[start] != generation) {
+            seen[start] = generation;
+            buffer[count++] = start;
+        }
+
+        if (mode == Mode.LEFTMOST_LONGEST) {
+            for (int i = 0 ; i < count ; ++i) {
+                if (dfa.isAccepting(buffer[i])) {
+                    count = i + 1;
+                    injecting = false;
+                    break;
+                }
+            }
+        }
+        return new ThreadList(Arrays.copyOf(buffer, count), injecting);
+    }
+
+    private int addState(ThreadList list) {
+        Integer index = indexOfList.get(list);
+        if (index != null) {
+            return index;
+        }
+
+        index = stateCount++;
+        indexOfList.put(list, index);
+        lists[index] = list;
+        accepting[index] = false;
+        for (int thread : list.threads) {
+            accepting[index] |= dfa.isAccepting(thread);
+        }
+        return index;
+    }
+
+    private void flush() {
+        indexOfList.clear();
+        Arrays.fill(lists, 0, stateCount, null);
+        Arrays.fill(transitions, UNKNOWN);
+        stateCount = 0;
+
+        ++generation;
+        startState = addState(normalize(0, true));
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Reverses every transition into an NFA that starts in all accepting states
+     * and accepts in the start state, then determinizes and minimizes it.
+     */
+    private static CompiledDFA reverse(CompiledDFA dfa) {
+        SymbolTable symbolTable = dfa.getSymbolTable();
+        NState[] states = new NState[dfa.getStateCount()];
+        for (int s = 0 ; s < states.length ; ++s) {
+            states[s] = new NState("r" + s);
+        }
+        NState startState = new NState("r");
+        for (int s = 0 ; s < states.length ; ++s) {
+            for (int symbol = 0 ; symbol < symbolTable.size() ; ++symbol) {
+                int next = dfa.getNextState(s, symbolTable.classOf(symbol));
+                if (next != CompiledDFA.NO_STATE) {
+                    states[next].putNextState(symbolTable.getSymbol(symbol), states[s]);
+                }
+            }
+            if (dfa.isAccepting(s)) {
+                startState.putNextState(null, states[s]);
+            }
+        }
+
+        Set<NState> allStates = new HashSet<>(Arrays.asList(states));
+        allStates.add(startState);
+        NFA nfa = new NFA(allStates, startState, Set.of(states[dfa.getStartState()]));
+        return DFAMinimizer.minimize(DFA.convertFrom(nfa).compile());
+    }
+
+    private static final class ThreadList {
+        private final int[] threads;
+        private final boolean injecting;
+        private final int hash;
+
+        private ThreadList(int[] threads, boolean injecting) {
+            this.threads = threads;
+            this.injecting = injecting;
+            this.hash = Arrays.hashCode(threads) * 2 + (injecting ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ThreadList)) {
+                return false;
+            }
+            ThreadList list = (ThreadList) other;
+            return hash == list.hash && injecting == list.injecting && Arrays.equals(threads, list.threads);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
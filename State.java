@@ -1,11 +1,13 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
 public abstract class State {
-    private static int stateCounter = 0;
+    private static final AtomicInteger stateCounter = new AtomicInteger();
     
     private int stateID;
     private String stateName;
 
     protected State(String stateName) {
-        this.stateID = stateCounter++;
+        this.stateID = stateCounter.getAndIncrement();
         this.stateName = stateName;
     }
 
@@ -0,0 +1,188 @@
+import java.util.Arrays;
+
+/**
+ * Reachability and co-reachability of the states of the table form of a DFA.
+ * A state is dead if no accept state can be reached from it, and
+ * accept-absorbing if every state reachable from it accepts and has a
+ * transition on every symbol. Either way no further input can change the
+ * outcome, the state is decisive. A missing transition leads to an implicit
+ * dead state.
+ * Never modified after construction, so it can be shared between threads.
+ */
+public final class StateAnalysis {
+    private final CompiledDFA dfa;
+    private final boolean[] reachable;
+    private final boolean[] dead;
+    private final boolean[] acceptAbsorbing;
+    private final boolean[] decisive;
+
+    private StateAnalysis(CompiledDFA dfa) {
+        this.dfa = dfa;
+        int stateCount = dfa.getStateCount();
+        int width = dfa.getSymbolTable().getClassCount();
+
+        int[] predecessorStart = new int[stateCount + 1];
+        for (int s = 0 ; s < stateCount ; ++s) {
+            for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+                int next = dfa.getNextState(s, symbolClass);
+                if (next != CompiledDFA.NO_STATE) {
+                    ++predecessorStart[next + 1];
+                }
+            }
+        }
+        for (int s = 0 ; s < stateCount ; ++s) {
+            predecessorStart[s + 1] += predecessorStart[s];
+        }
+        int[] predecessors = new int[predecessorStart[stateCount]];
+        int[] fill = Arrays.copyOf(predecessorStart, stateCount);
+        boolean[] complete = new boolean[stateCount];
+        for (int s = 0 ; s < stateCount ; ++s) {
+            complete[s] = true;
+            for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+                int next = dfa.getNextState(s, symbolClass);
+                if (next == CompiledDFA.NO_STATE) {
+                    complete[s] = false;
+                } else {
+                    predecessors[fill[next]++] = s;
+                }
+            }
+        }
+
+        boolean[] live = new boolean[stateCount];
+        boolean[] rejecting = new boolean[stateCount];
+        boolean[] failing = new boolean[stateCount];
+        for (int s = 0 ; s < stateCount ; ++s) {
+            live[s] = dfa.isAccepting(s);
+            rejecting[s] = !dfa.isAccepting(s) || !complete[s];
+            failing[s] = !complete[s];
+        }
+        propagate(live, predecessors, predecessorStart);
+        propagate(rejecting, predecessors, predecessorStart);
+        if (!dfa.isPartial()) {
+            propagate(failing, predecessors, predecessorStart);
+        }
+
+        this.reachable = new boolean[stateCount];
+        this.dead = new boolean[stateCount];
+        this.acceptAbsorbing = new boolean[stateCount];
+        this.decisive = new boolean[stateCount];
+        for (int s = 0 ; s < stateCount ; ++s) {
+            dead[s] = !live[s];
+            acceptAbsorbing[s] = !rejecting[s];
+            decisive[s] = acceptAbsorbing[s] || (dead[s] && (dfa.isPartial() || !failing[s]));
+        }
+        int[] queue = new int[stateCount];
+        int count = 0;
+        reachable[dfa.getStartState()] = true;
+        queue[count++] = dfa.getStartState();
+        for (int i = 0 ; i < count ; ++i) {
+            for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+                int next = dfa.getNextState(queue[i], symbolClass);
+                if (next != CompiledDFA.NO_STATE && !reachable[next]) {
+                    reachable[next] = true;
+                    queue[count++] = next;
+                }
+            }
+        }
+    }
+
+    public static StateAnalysis analyze(CompiledDFA dfa) {
+        return new StateAnalysis(dfa);
+    }
+
+    /**
+     * Marks every predecessor of a marked state, breadth-first over the reversed transitions.
+     */
+    private static void propagate(boolean[] marked, int[] predecessors, int[] predecessorStart) {
+        int[] queue = new int[marked.length];
+        int count = 0;
+        for (int s = 0 ; s < marked.length ; ++s) {
+            if (marked[s]) {
+                queue[count++] = s;
+            }
+        }
+        for (int i = 0 ; i < count ; ++i) {
+            for (int p = predecessorStart[queue[i]] ; p < predecessorStart[queue[i] + 1] ; ++p) {
+                if (!marked[predecessors[p]]) {
+                    marked[predecessors[p]] = true;
+                    queue[count++] = predecessors[p];
+                }
+            }
+        }
+    }
+
+    public boolean isReachable(int state) {
+        return reachable[state];
+    }
+
+    public boolean isDead(int state) {
+        return dead[state];
+    }
+
+    public boolean isAcceptAbsorbing(int state) {
+        return acceptAbsorbing[state];
+    }
+
+    /**
+     * Whether the outcome of every input reaching this state is already known.
+     */
+    public boolean isDecisive(int state) {
+        return decisive[state];
+    }
+
+    /**
+     * Reachable states from which an accept state can be reached, the start state is always useful.
+     */
+    public boolean isUseful(int state) {
+        return state == dfa.getStartState() || (reachable[state] && !dead[state]);
+    }
+
+    public int getUsefulCount() {
+        int count = 0;
+        for (int s = 0 ; s < dfa.getStateCount() ; ++s) {
+            count += isUseful(s) ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Keeps only the useful states, transitions to the others become missing
+     * and the result is partial. States are renumbered breadth-first from the
+     * start state, the symbol table is kept so symbols that only led to dead
+     * states stay known.
+     */
+    public CompiledDFA trim() {
+        int width = dfa.getSymbolTable().getClassCount();
+        int[] newIndex = new int[dfa.getStateCount()];
+        int[] order = new int[dfa.getStateCount()];
+        Arrays.fill(newIndex, -1);
+
+        int count = 0;
+        newIndex[dfa.getStartState()] = count;
+        order[count++] = dfa.getStartState();
+        for (int i = 0 ; i < count ; ++i) {
+            for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+                int next = dfa.getNextState(order[i], symbolClass);
+                if (next != CompiledDFA.NO_STATE && !dead[next] && newIndex[next] == -1) {
+                    newIndex[next] = count;
+                    order[count++] = next;
+                }
+            }
+        }
+
+        int[] transitions = new int[count * width];
+        boolean[] accepting = new boolean[count];
+        String[] stateNames = new String[count];
+        for (int i = 0 ; i < count ; ++i) {
+            for (int symbolClass = 0 ; symbolClass < width ; ++symbolClass) {
+                int next = dfa.getNextState(order[i], symbolClass);
+                transitions[i * width + symbolClass] = next == CompiledDFA.NO_STATE || dead[next] ? CompiledDFA.NO_STATE : newIndex[next];
+            }
+            accepting[i] = dfa.isAccepting(order[i]);
+            stateNames[i] = dfa.getStateName(order[i]);
+        }
+
+        return new CompiledDFA(dfa.getSymbolTable(), transitions, accepting, 0, stateNames, true);
+    }
+
+}
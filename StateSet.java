@@ -0,0 +1,120 @@
+import java.util.Arrays;
+
+/**
+ * Set of densely numbered states stored as a bitset.
+ * Equality and hash code are by content, so it can be used as a map key.
+ * The words must not be modified while the set is in use as a key.
+ */
+public final class StateSet {
+    private final long[] words;
+    private final int hash;
+
+    public StateSet(long[] words) {
+        this.words = words;
+        this.hash = Arrays.hashCode(words);
+    }
+
+    public static long[] newWords(int stateCount) {
+        return new long[(stateCount + 63) >>> 6];
+    }
+
+    public static void add(long[] words, int state) {
+        words[state >>> 6] |= 1L << state;
+    }
+
+    public static boolean contains(long[] words, int state) {
+        return (words[state >>> 6] & (1L << state)) != 0;
+    }
+
+    public static void addAll(long[] words, long[] other) {
+        for (int i = 0 ; i < words.length ; ++i) {
+            words[i] |= other[i];
+        }
+    }
+
+    public static boolean containsAll(long[] words, long[] other) {
+        for (int i = 0 ; i < words.length ; ++i) {
+            if ((other[i] & ~words[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static boolean intersects(long[] words, long[] other) {
+        for (int i = 0 ; i < words.length ; ++i) {
+            if ((words[i] & other[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the first member at or after {@code from}, or -1 if there is none.
+     */
+    public static int nextMember(long[] words, int from) {
+        int i = from >>> 6;
+        if (i >= words.length) {
+            return -1;
+        }
+
+        long word = words[i] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++i == words.length) {
+                return -1;
+            }
+            word = words[i];
+        }
+    }
+
+    public long[] getWords() {
+        return words;
+    }
+
+    public boolean contains(int state) {
+        return contains(words, state);
+    }
+
+    public int nextMember(int from) {
+        return nextMember(words, from);
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        int size = 0;
+        for (long word : words) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StateSet)) {
+            return false;
+        }
+        StateSet other = (StateSet) o;
+        return hash == other.hash && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+}
@@ -0,0 +1,173 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+/**
+ * Dense numbering of an alphabet.
+ * Symbols are also grouped into equivalence classes, symbols of one class
+ * behave the same in every state, so transition tables only need one column
+ * per class. Single-character symbols are looked up by char (or byte) through
+ * a flat array, without allocating.
+ */
+public final class SymbolTable {
+    public static final int NO_SYMBOL = -1;
+
+    /**
+     * Compares two symbols column by column, see {@link #withClasses(long[], ColumnEquality)}.
+     */
+    public interface ColumnEquality {
+        boolean equal(int symbol, int otherSymbol);
+    }
+
+    private final String[] symbols;
+    private final HashMap<String, Integer> indexOfSymbol;
+    private final int[] classOfSymbol;
+    private final int[][] symbolsOfClass;
+    private final int[] classOfChar;
+
+    public SymbolTable(Collection<String> alphabet) {
+        TreeSet<String> sorted = new TreeSet<>();
+        for (String symbol : alphabet) {
+            if (symbol != null) {
+                sorted.add(symbol);
+            }
+        }
+
+        this.symbols = sorted.toArray(new String[0]);
+        this.indexOfSymbol = new HashMap<>();
+        for (int i = 0 ; i < symbols.length ; ++i) {
+            indexOfSymbol.put(symbols[i], i);
+        }
+
+        this.classOfSymbol = new int[symbols.length];
+        for (int i = 0 ; i < symbols.length ; ++i) {
+            classOfSymbol[i] = i;
+        }
+        this.symbolsOfClass = groupSymbols(classOfSymbol, symbols.length);
+        this.classOfChar = charTable(symbols, classOfSymbol);
+    }
+
+    /**
+     * @param classOfSymbol class of every symbol, classes numbered 0..n-1 by first symbol
+     */
+    public SymbolTable(SymbolTable symbolTable, int[] classOfSymbol) {
+        this.symbols = symbolTable.symbols;
+        this.indexOfSymbol = symbolTable.indexOfSymbol;
+        this.classOfSymbol = classOfSymbol;
+
+        int classCount = 0;
+        for (int symbolClass : classOfSymbol) {
+            classCount = Math.max(classCount, symbolClass + 1);
+        }
+        this.symbolsOfClass = groupSymbols(classOfSymbol, classCount);
+        this.classOfChar = charTable(symbols, classOfSymbol);
+    }
+
+    private static int[][] groupSymbols(int[] classOfSymbol, int classCount) {
+        int[] sizes = new int[classCount];
+        for (int symbolClass : classOfSymbol) {
+            ++sizes[symbolClass];
+        }
+
+        int[][] symbolsOfClass = new int[classCount][];
+        for (int c = 0 ; c < classCount ; ++c) {
+            symbolsOfClass[c] = new int[sizes[c]];
+            sizes[c] = 0;
+        }
+        for (int i = 0 ; i < classOfSymbol.length ; ++i) {
+            symbolsOfClass[classOfSymbol[i]][sizes[classOfSymbol[i]]++] = i;
+        }
+        return symbolsOfClass;
+    }
+
+    private static int[] charTable(String[] symbols, int[] classOfSymbol) {
+        int maxChar = -1;
+        for (String symbol : symbols) {
+            if (symbol.length() == 1) {
+                maxChar = Math.max(maxChar, symbol.charAt(0));
+            }
+        }
+
+        int[] classOfChar = new int[maxChar + 1];
+        Arrays.fill(classOfChar, NO_SYMBOL);
+        for (int i = 0 ; i < symbols.length ; ++i) {
+            if (symbols[i].length() == 1) {
+                classOfChar[symbols[i].charAt(0)] = classOfSymbol[i];
+            }
+        }
+        return classOfChar;
+    }
+
+    /**
+     * Puts symbols with equal columns into one class.
+     * Symbols are bucketed by the hash of their column and only compared
+     * with the classes already found in their bucket.
+     */
+    public SymbolTable withClasses(long[] columnHashes, ColumnEquality equality) {
+        int[] classes = new int[symbols.length];
+        int[] representatives = new int[symbols.length];
+        HashMap<Long, int[]> classesOfHash = new HashMap<>();
+        int classCount = 0;
+
+        for (int symbol = 0 ; symbol < symbols.length ; ++symbol) {
+            int[] candidates = classesOfHash.get(columnHashes[symbol]);
+            int found = NO_SYMBOL;
+            if (candidates != null) {
+                for (int candidate : candidates) {
+                    if (equality.equal(representatives[candidate], symbol)) {
+                        found = candidate;
+                        break;
+                    }
+                }
+            }
+
+            if (found == NO_SYMBOL) {
+                found = classCount++;
+                representatives[found] = symbol;
+                int[] extended = candidates == null ? new int[1] : Arrays.copyOf(candidates, candidates.length + 1);
+                extended[extended.length - 1] = found;
+                classesOfHash.put(columnHashes[symbol], extended);
+            }
+            classes[symbol] = found;
+        }
+        return new SymbolTable(this, classes);
+    }
+
+    public int indexOf(String symbol) {
+        Integer index = indexOfSymbol.get(symbol);
+        return index == null ? NO_SYMBOL : index;
+    }
+
+    public int classOf(char c) {
+        return c < classOfChar.length ? classOfChar[c] : NO_SYMBOL;
+    }
+
+    public int classOf(int symbol) {
+        return classOfSymbol[symbol];
+    }
+
+    public int[] getSymbolsOfClass(int symbolClass) {
+        return symbolsOfClass[symbolClass];
+    }
+
+    public int getClassCount() {
+        return symbolsOfClass.length;
+    }
+
+    /**
+     * Chars at or above this limit are not symbols.
+     */
+    public int getCharLimit() {
+        return classOfChar.length;
+    }
+
+    public String getSymbol(int index) {
+        return symbols[index];
+    }
+
+    public int size() {
+        return symbols.length;
+    }
+
+}
@@ -0,0 +1,32 @@
+/**
+ * Deterministic automaton with densely numbered states, as read by {@link Matcher}.
+ * A missing transition leads to {@link CompiledDFA#NO_STATE}.
+ */
+public interface TransitionTable {
+
+    int getStartState();
+
+    int getStateCount();
+
+    boolean isAccepting(int state);
+
+    int step(int state, char c);
+
+    /**
+     * @return the state reached from {@code state}, or NO_STATE if a symbol has no transition.
+     */
+    default int run(int state, CharSequence input) {
+        for (int i = 0 ; i < input.length() && state != CompiledDFA.NO_STATE ; ++i) {
+            state = step(state, input.charAt(i));
+        }
+        return state;
+    }
+
+    default int run(int state, char[] input, int offset, int length) {
+        for (int i = offset ; i < offset + length && state != CompiledDFA.NO_STATE ; ++i) {
+            state = step(state, input[i]);
+        }
+        return state;
+    }
+
+}
@@ -0,0 +1,157 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidAlgorithmParameterException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming loader for transition tables stored as CSV or TSV.
+ * The layout is the one of createFrom: the first line holds the symbols (its
+ * first cell is ignored), every other line holds a state name followed by one
+ * cell per symbol. A state name prefixed with ">" is the start state, one
+ * prefixed with "*" an accept state, both can be combined as ">*q0".
+ * NFA cells list next states separated by spaces and an empty symbol is the
+ * epsilon column, DFA cells hold one next state. Empty cells have no transition.
+ * Lines are read one at a time straight into a builder. Cells are trimmed,
+ * quoting is not supported.
+ */
+public final class TransitionTableLoader {
+    private static final char CSV = ',';
+    private static final char TSV = '\t';
+
+    private TransitionTableLoader() {
+    }
+
+    /**
+     * Files ending in ".tsv" are tab separated, all others comma separated.
+     */
+    public static NFA loadNFA(Path path) throws IOException, InvalidAlgorithmParameterException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return readNFA(reader, delimiterOf(path)).build();
+        }
+    }
+
+    /**
+     * Files ending in ".tsv" are tab separated, all others comma separated.
+     */
+    public static DFA loadDFA(Path path) throws IOException, InvalidAlgorithmParameterException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return readDFA(reader, delimiterOf(path)).build();
+        }
+    }
+
+    public static NFABuilder readNFA(Reader reader, char delimiter) throws IOException {
+        return read(reader, delimiter, new NFABuilder(), true);
+    }
+
+    public static DFABuilder readDFA(Reader reader, char delimiter) throws IOException {
+        return read(reader, delimiter, new DFABuilder(), false);
+    }
+
+    /**
+     * @param nondeterministic whether cells list several next states and the epsilon column is allowed
+     */
+    private static <B extends AutomatonBuilder<B>> B read(Reader reader, char delimiter, B builder, boolean nondeterministic) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<String> cells = new ArrayList<>();
+        String[] symbols = null;
+        int lineNumber = 0;
+
+        for (String line = lines.readLine() ; line != null ; line = lines.readLine()) {
+            ++lineNumber;
+            if (line.isEmpty()) {
+                continue;
+            }
+            split(line, delimiter, cells);
+            if (symbols == null) {
+                symbols = symbolsOf(cells, nondeterministic, lineNumber);
+                continue;
+            }
+            checkWidth(cells, symbols, lineNumber);
+
+            int state = builder.state(stateName(cells.get(0), lineNumber));
+            if (hasPrefix(cells.get(0), '>')) {
+                builder.setStartState(state);
+            }
+            if (hasPrefix(cells.get(0), '*')) {
+                builder.addAcceptState(state);
+            }
+            for (int c = 1 ; c < cells.size() ; ++c) {
+                String cell = cells.get(c);
+                int i = 0;
+                while (i < cell.length()) {
+                    int end = nondeterministic ? cell.indexOf(' ', i) : -1;
+                    if (end < 0) {
+                        end = cell.length();
+                    }
+                    if (end > i) {
+                        builder.addTransition(state, symbols[c], builder.state(cell.substring(i, end)));
+                    }
+                    i = end + 1;
+                }
+            }
+        }
+        return builder;
+    }
+
+    private static int prefixLength(String cell) {
+        int i = 0;
+        while (i < cell.length() && (cell.charAt(i) == '>' || cell.charAt(i) == '*')) {
+            ++i;
+        }
+        return i;
+    }
+
+    private static boolean hasPrefix(String cell, char marker) {
+        int i = cell.indexOf(marker);
+        return i >= 0 && i < prefixLength(cell);
+    }
+
+    private static String stateName(String cell, int lineNumber) throws IOException {
+        String name = cell.substring(prefixLength(cell));
+        if (name.isEmpty()) {
+            throw new IOException("Missing state name in line " + lineNumber + ".");
+        }
+        return name;
+    }
+
+    private static String[] symbolsOf(List<String> cells, boolean allowEpsilon, int lineNumber) throws IOException {
+        String[] symbols = new String[cells.size()];
+        for (int c = 1 ; c < cells.size() ; ++c) {
+            if (cells.get(c).isEmpty() && !allowEpsilon) {
+                throw new IOException("Empty symbol in line " + lineNumber + ".");
+            }
+            symbols[c] = cells.get(c).isEmpty() ? null : cells.get(c);
+        }
+        return symbols;
+    }
+
+    private static void checkWidth(List<String> cells, String[] symbols, int lineNumber) throws IOException {
+        if (cells.size() > symbols.length) {
+            throw new IOException("Line " + lineNumber + " has more cells than there are symbols.");
+        }
+    }
+
+    private static void split(String line, char delimiter, List<String> cells) {
+        cells.clear();
+        int start = 0;
+        while (true) {
+            int end = line.indexOf(delimiter, start);
+            if (end < 0) {
+                cells.add(line.substring(start).trim());
+                return;
+            }
+            cells.add(line.substring(start, end).trim());
+            start = end + 1;
+        }
+    }
+
+    private static char delimiterOf(Path path) {
+        return path.getFileName().toString().endsWith(".tsv") ? TSV : CSV;
+    }
+
+}
@@ -0,0 +1,209 @@
+package jmh;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for construction, conversion and matching, one state class
+ * per family so every family has its own sizes and input lengths.
+ * Build with {@code mvn -Pjmh package}, run with
+ * {@code java -jar target/benchmarks.jar -prof gc} for allocation rates.
+ * JMH needs a named package and classes of the default package cannot be
+ * referred to from one, so the fixtures are looked up once per trial
+ * through {@code Benchmark.operation} and only a Callable is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutomatonBenchmark {
+
+    static Callable<?> operation(String name, int size, int inputLength) throws Exception {
+        return (Callable<?>) Class.forName("Benchmark")
+                .getMethod("operation", String.class, int.class, int.class)
+                .invoke(null, name, size, inputLength);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Construction {
+        @Param({ "NFA.createFrom", "DFA.createFrom" })
+        public String name;
+
+        @Param({ "16", "256", "4096", "32768" })
+        public int size;
+
+        Callable<?> operation;
+
+        @Setup
+        public void setup() throws Exception {
+            operation = operation(name, size, 0);
+        }
+    }
+
+    /**
+     * Closure of the start of an epsilon chain, which reaches every state.
+     */
+    @State(Scope.Benchmark)
+    public static class EpsilonClosure {
+        @Param({ "16", "256", "4096", "32768" })
+        public int size;
+
+        Callable<?> operation;
+
+        @Setup
+        public void setup() throws Exception {
+            operation = operation("NFA.epsilonClosure", size, 0);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Conversion {
+        @Param({ "4", "8", "12", "16" })
+        public int size;
+
+        Callable<?> operation;
+
+        @Setup
+        public void setup() throws Exception {
+            operation = operation("DFA.convertFrom", size, 0);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class NFAMatching {
+        @Param({ "4", "64", "1024" })
+        public int size;
+
+        @Param({ "1024", "65536", "1048576" })
+        public int inputLength;
+
+        Callable<?> operation;
+
+        @Setup
+        public void setup() throws Exception {
+            operation = operation("NFA.input", size, inputLength);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class DFAMatching {
+        @Param({ "4", "8", "12", "16" })
+        public int size;
+
+        @Param({ "1024", "65536", "1048576" })
+        public int inputLength;
+
+        Callable<?> operation;
+
+        @Setup
+        public void setup() throws Exception {
+            operation = operation("DFA.input", size, inputLength);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Decision {
+        @Param({ "DFA.input.decided", "DFA.decisionPoint" })
+        public String name;
+
+        @Param({ "1024", "65536", "1048576" })
+        public int inputLength;
+
+        Callable<?> operation;
+
+        @Setup
+        public void setup() throws Exception {
+            operation = operation(name, 3, inputLength);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Bytecode {
+        @Param({ "Bytecode.random", "Bytecode.skewed", "Bytecode.table.random", "Bytecode.table.skewed" })
+        public String name;
+
+        @Param({ "2", "4", "6", "8" })
+        public int size;
+
+        @Param({ "1024", "65536", "1048576" })
+        public int inputLength;
+
+        Callable<?> operation;
+
+        @Setup
+        public void setup() throws Exception {
+            operation = operation(name, size, inputLength);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Interleaved {
+        @Param({ "Interleaved.sequential", "Interleaved.lanes1", "Interleaved.lanes4",
+                 "Interleaved.lanes8", "Interleaved.lanes16" })
+        public String name;
+
+        @Param({ "1024", "262144", "4194304" })
+        public int size;
+
+        Callable<?> operation;
+
+        @Setup
+        public void setup() throws Exception {
+            operation = operation(name, size, 1 << 20);
+        }
+    }
+
+    @Benchmark
+    public Object construction(Construction state) throws Exception {
+        return state.operation.call();
+    }
+
+    @Benchmark
+    public Object epsilonClosure(EpsilonClosure state) throws Exception {
+        return state.operation.call();
+    }
+
+    @Benchmark
+    public Object conversion(Conversion state) throws Exception {
+        return state.operation.call();
+    }
+
+    @Benchmark
+    public Object nfaInput(NFAMatching state) throws Exception {
+        return state.operation.call();
+    }
+
+    @Benchmark
+    public Object dfaInput(DFAMatching state) throws Exception {
+        return state.operation.call();
+    }
+
+    @Benchmark
+    public Object decision(Decision state) throws Exception {
+        return state.operation.call();
+    }
+
+    @Benchmark
+    public Object bytecode(Bytecode state) throws Exception {
+        return state.operation.call();
+    }
+
+    @Benchmark
+    public Object interleaved(Interleaved state) throws Exception {
+        return state.operation.call();
+    }
+
+}
@@ -0,0 +1,65 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Random automata and input enumeration shared by the tests.
+ */
+final class Automata {
+
+    private Automata() {
+    }
+
+    /**
+     * Up to six states over {a, b} with epsilon transitions, state s0 starts.
+     */
+    static NFA randomNFA(Random random) {
+        List<NState> states = new ArrayList<>();
+        int stateCount = 1 + random.nextInt(6);
+        for (int s = 0 ; s < stateCount ; ++s) {
+            states.add(new NState("s" + s));
+        }
+        int transitionCount = random.nextInt(3 * stateCount);
+        for (int t = 0 ; t < transitionCount ; ++t) {
+            int kind = random.nextInt(6);
+            String symbol = kind == 0 ? null : kind < 3 ? "a" : "b";
+            states.get(random.nextInt(stateCount)).putNextState(symbol, states.get(random.nextInt(stateCount)));
+        }
+        Set<NState> acceptStates = new HashSet<>();
+        for (NState state : states) {
+            if (random.nextInt(3) == 0) {
+                acceptStates.add(state);
+            }
+        }
+        return new NFA(new HashSet<>(states), states.get(0), acceptStates);
+    }
+
+    /**
+     * Every input of at most {@code maxLength} symbols, shortest first.
+     */
+    static List<String> words(int maxLength, Collection<String> alphabet) {
+        List<String> symbols = new ArrayList<>();
+        for (String symbol : alphabet) {
+            if (symbol != null) {
+                symbols.add(symbol);
+            }
+        }
+        List<String> words = new ArrayList<>();
+        words.add("");
+        int levelStart = 0;
+        for (int length = 1 ; length <= maxLength ; ++length) {
+            int levelEnd = words.size();
+            for (int i = levelStart ; i < levelEnd ; ++i) {
+                for (String symbol : symbols) {
+                    words.add(words.get(i) + symbol);
+                }
+            }
+            levelStart = levelEnd;
+        }
+        return words;
+    }
+
+}
@@ -0,0 +1,167 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class AutomatonCacheTest {
+
+    /**
+     * Same structure with new states, created and linked in a shuffled order.
+     */
+    private static NFA shuffledCopy(NFA nfa, Random random) {
+        List<NState> states = new ArrayList<>(nfa.getStates());
+        Collections.shuffle(states, random);
+        HashMap<NState, NState> copyOf = new HashMap<>();
+        for (NState state : states) {
+            copyOf.put(state, new NState("c" + random.nextInt(1000)));
+        }
+        for (NState state : states) {
+            List<String> symbols = new ArrayList<>(state.getSymbols());
+            Collections.shuffle(symbols, random);
+            for (String symbol : symbols) {
+                List<NState> nextStates = new ArrayList<>(state.getNextStates(symbol));
+                Collections.shuffle(nextStates, random);
+                for (NState nextState : nextStates) {
+                    copyOf.get(state).putNextState(symbol, copyOf.get(nextState));
+                }
+            }
+        }
+        Set<NState> acceptStates = new HashSet<>();
+        for (NState acceptState : nfa.getAcceptStates()) {
+            acceptStates.add(copyOf.get(acceptState));
+        }
+        return new NFA(new HashSet<>(copyOf.values()), copyOf.get(nfa.getStartState()), acceptStates);
+    }
+
+    /**
+     * A start state with {@code branches} identical branches s -a-> x -b-> f.
+     */
+    private static NFA branches(int branches) {
+        NState start = new NState("s");
+        NState accept = new NState("f");
+        Set<NState> states = new HashSet<>(List.of(start, accept));
+        for (int i = 0 ; i < branches ; ++i) {
+            NState middle = new NState("x" + i);
+            start.putNextState("a", middle);
+            middle.putNextState("b", accept);
+            states.add(middle);
+        }
+        return new NFA(states, start, Set.of(accept));
+    }
+
+    /**
+     * Cycles over "a" whose lengths add up to six, every state accepting;
+     * refinement alone cannot tell them apart.
+     */
+    private static NFA cycles(int... lengths) {
+        NState start = new NState("s");
+        Set<NState> states = new HashSet<>(List.of(start));
+        for (int length : lengths) {
+            NState first = new NState();
+            NState previous = first;
+            states.add(first);
+            for (int i = 1 ; i < length ; ++i) {
+                NState next = new NState();
+                previous.putNextState("a", next);
+                states.add(next);
+                previous = next;
+            }
+            previous.putNextState("a", first);
+            start.putNextState(null, first);
+        }
+        Set<NState> acceptStates = new HashSet<>(states);
+        acceptStates.remove(start);
+        return new NFA(states, start, acceptStates);
+    }
+
+    @Test
+    void isomorphicNFAsShareAFingerprint() {
+        Random random = new Random(21);
+        for (int t = 0 ; t < 1000 ; ++t) {
+            NFA nfa = Automata.randomNFA(random);
+            assertEquals(AutomatonCache.fingerprint(nfa), AutomatonCache.fingerprint(shuffledCopy(nfa, random)));
+        }
+        for (int t = 0 ; t < 20 ; ++t) {
+            assertEquals(AutomatonCache.fingerprint(branches(8)), AutomatonCache.fingerprint(shuffledCopy(branches(8), random)));
+            assertEquals(AutomatonCache.fingerprint(cycles(3, 3)), AutomatonCache.fingerprint(shuffledCopy(cycles(3, 3), random)));
+        }
+    }
+
+    @Test
+    void sameFingerprintMeansSameLanguage() {
+        Random random = new Random(22);
+        HashMap<AutomatonCache.Fingerprint, NFA> seen = new HashMap<>();
+        for (int t = 0 ; t < 2000 ; ++t) {
+            NFA nfa = Automata.randomNFA(random);
+            NFA other = seen.putIfAbsent(AutomatonCache.fingerprint(nfa), nfa);
+            if (other != null) {
+                for (String input : Automata.words(5, List.of("a", "b"))) {
+                    assertEquals(other.input(input), nfa.input(input), input);
+                }
+            }
+        }
+        assertNotEquals(AutomatonCache.fingerprint(cycles(3, 3)), AutomatonCache.fingerprint(cycles(6)));
+        assertNotEquals(AutomatonCache.fingerprint(branches(2)), AutomatonCache.fingerprint(branches(3)));
+    }
+
+    @Test
+    void structurallyIdenticalNFAsHit() {
+        AutomatonCache cache = new AutomatonCache(1 << 20);
+        Random random = new Random(23);
+        NFA nfa = branches(3);
+
+        DFA dfa = cache.get(nfa);
+        assertSame(dfa, cache.get(shuffledCopy(nfa, random)));
+        assertSame(dfa, cache.getIfPresent(shuffledCopy(nfa, random)));
+        assertNull(cache.getIfPresent(branches(4)));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedBySize() {
+        NFA first = branches(1);
+        NFA second = cycles(2);
+        NFA third = cycles(3);
+        long firstBytes = AutomatonCache.estimateBytes(DFA.convertFrom(first));
+        long secondBytes = AutomatonCache.estimateBytes(DFA.convertFrom(second));
+        long thirdBytes = AutomatonCache.estimateBytes(DFA.convertFrom(third));
+        AutomatonCache cache = new AutomatonCache(firstBytes + Math.max(secondBytes, thirdBytes));
+
+        cache.get(first);
+        cache.get(second);
+        assertEquals(firstBytes + secondBytes, cache.getByteSize());
+        cache.get(first);
+        cache.get(third);
+
+        assertNotNull(cache.getIfPresent(first));
+        assertNull(cache.getIfPresent(second));
+        assertNotNull(cache.getIfPresent(third));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(firstBytes + thirdBytes, cache.getByteSize());
+        assertTrue(cache.getByteSize() <= cache.getMaxBytes());
+    }
+
+    @Test
+    void entriesLargerThanTheLimitAreNotCached() {
+        NFA nfa = cycles(3, 3);
+        AutomatonCache cache = new AutomatonCache(AutomatonCache.estimateBytes(DFA.convertFrom(nfa)) - 1);
+
+        assertNotNull(cache.get(nfa));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getByteSize());
+    }
+
+}
@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.security.InvalidAlgorithmParameterException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class AutomatonExporterTest {
+
+    /**
+     * Even number of 1s, over {0, 1}.
+     */
+    private static DFA evenOnes() throws InvalidAlgorithmParameterException {
+        return DFA.createFrom(new String[][] {
+            { "",     "0",    "1" },
+            { "even", "even", "odd" },
+            { "odd",  "odd",  "even" }
+        }, "even", new String[] { "even" });
+    }
+
+    private static String export(DFA dfa, AutomatonExporter.Format format) throws IOException {
+        StringBuilder out = new StringBuilder();
+        dfa.export(format, out);
+        return out.toString();
+    }
+
+    private static String export(NFA nfa, AutomatonExporter.Format format) throws IOException {
+        StringBuilder out = new StringBuilder();
+        AutomatonExporter.export(nfa, format, out);
+        return out.toString();
+    }
+
+    /**
+     * s -a-> t, s -ε-> t, with a state name holding every character DOT and JSON must escape.
+     */
+    private static NFA awkwardNames() {
+        NState start = new NState("s");
+        NState accept = new NState("q\"1\\\n\t&");
+        start.putNextState("a", accept);
+        start.putNextState(null, accept);
+        return new NFA(new HashSet<>(List.of(start, accept)), start, Set.of(accept));
+    }
+
+    @Test
+    void textListsStatesTransitionsAndAcceptStates() throws IOException, InvalidAlgorithmParameterException {
+        DFA dfa = evenOnes();
+        String text = export(dfa, AutomatonExporter.Format.TEXT);
+
+        assertEquals(dfa.toString(), text);
+        assertTrue(text.contains("Move From: even To: odd By: 1\n"));
+        assertTrue(text.contains("Move From: odd To: odd By: 0\n"));
+        assertTrue(text.contains("Start state: even\n"));
+        assertTrue(text.endsWith("Accept state:\neven"));
+        assertTrue(export(awkwardNames(), AutomatonExporter.Format.TEXT).contains(" By: <e>\n"));
+    }
+
+    @Test
+    void dotMergesParallelEdgesAndEscapesLabels() throws IOException, InvalidAlgorithmParameterException {
+        DFA dfa = evenOnes();
+        String dot = export(dfa, AutomatonExporter.Format.DOT);
+        int even = dfa.getStartState().getStateID();
+
+        assertTrue(dot.startsWith("digraph DFA {\n"));
+        assertTrue(dot.contains("    start -> s" + even + ";\n"));
+        assertTrue(dot.contains("    s" + even + " [label=\"even\", shape=doublecircle];\n"));
+        assertEquals(1 + 3 + 2 + 4 + 1, dot.split("\n").length);
+
+        NFA nfa = awkwardNames();
+        String escaped = export(nfa, AutomatonExporter.Format.DOT);
+        assertTrue(escaped.contains("[label=\"q\\\"1\\\\\\n&#9;&amp;\", shape=doublecircle];\n"), escaped);
+        assertTrue(escaped.contains("[label=\"a, ε\"]") || escaped.contains("[label=\"ε, a\"]"), escaped);
+        for (String line : escaped.split("\n")) {
+            assertTrue(line.equals("}") || line.endsWith(";") || line.endsWith("{"), line);
+            assertFalse(line.chars().anyMatch(c -> c < 0x20));
+        }
+    }
+
+    @Test
+    void jsonUsesIdsAndEscapesStrings() throws IOException, InvalidAlgorithmParameterException {
+        DFA dfa = evenOnes();
+        String json = export(dfa, AutomatonExporter.Format.JSON);
+
+        assertTrue(json.contains("\"type\": \"DFA\""));
+        assertTrue(json.contains("\"start\": " + dfa.getStartState().getStateID() + ",\n"));
+        assertEquals(4, json.split("\"from\": ", -1).length - 1);
+        assertTrue(json.contains("\"name\": \"even\", \"accepting\": true}"));
+
+        String escaped = export(awkwardNames(), AutomatonExporter.Format.JSON);
+        assertTrue(escaped.contains("\"name\": \"q\\\"1\\\\\\u000a\\u0009&\""), escaped);
+        assertTrue(escaped.contains("\"symbol\": null"));
+        assertTrue(escaped.contains("\"alphabet\": [null, \"a\"]") || escaped.contains("\"alphabet\": [\"a\", null]")
+                || escaped.contains("\"alphabet\": [\"a\"]"), escaped);
+    }
+
+}
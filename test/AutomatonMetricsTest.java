@@ -0,0 +1,33 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.InvalidAlgorithmParameterException;
+
+import org.junit.jupiter.api.Test;
+
+class AutomatonMetricsTest {
+
+    private static NFA nthSymbolFromEnd(int n) throws InvalidAlgorithmParameterException {
+        return Benchmark.nthSymbolFromEnd(Benchmark.nthSymbolFromEndTable(n), n);
+    }
+
+    @Test
+    void completeConversionExpandsEverySubsetItDiscovers() throws InvalidAlgorithmParameterException {
+        AutomatonMetrics metrics = new AutomatonMetrics();
+        DFA dfa = DFA.convertFrom(nthSymbolFromEnd(4), metrics);
+
+        assertEquals(dfa.getStates().size(), metrics.getSubsetsDiscovered());
+        assertEquals(metrics.getSubsetsDiscovered(), metrics.getSubsetsExpanded());
+    }
+
+    @Test
+    void budgetLeavesDiscoveredSubsetsUnexpanded() throws InvalidAlgorithmParameterException {
+        AutomatonMetrics metrics = new AutomatonMetrics();
+        ConversionResult result = DFA.convertFrom(nthSymbolFromEnd(10), metrics, new ConversionBudget().setMaxStates(50));
+
+        assertEquals(result.getStateCount(), metrics.getSubsetsDiscovered());
+        assertEquals(result.getExpandedCount(), metrics.getSubsetsExpanded());
+        assertTrue(metrics.getSubsetsExpanded() < metrics.getSubsetsDiscovered());
+    }
+
+}
@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BinaryDFATest {
+
+    private static void assertSameTable(CompiledDFA expected, CompiledDFA actual, boolean withStateNames) {
+        assertEquals(expected.getStateCount(), actual.getStateCount());
+        assertEquals(expected.getStartState(), actual.getStartState());
+        assertEquals(expected.isPartial(), actual.isPartial());
+        assertEquals(expected.getSymbolTable().size(), actual.getSymbolTable().size());
+        for (int s = 0 ; s < expected.getStateCount() ; ++s) {
+            assertEquals(expected.isAccepting(s), actual.isAccepting(s));
+            if (withStateNames) {
+                assertEquals(expected.getStateName(s), actual.getStateName(s));
+            } else {
+                assertNull(actual.getStateName(s));
+            }
+            for (char c = 0 ; c < 128 ; ++c) {
+                assertEquals(expected.step(s, c), actual.step(s, c));
+            }
+        }
+    }
+
+    private static int[] steps(TransitionTable table) {
+        int[] steps = new int[table.getStateCount() * 128];
+        for (int s = 0 ; s < table.getStateCount() ; ++s) {
+            for (char c = 0 ; c < 128 ; ++c) {
+                steps[s * 128 + c] = table.step(s, c);
+            }
+        }
+        return steps;
+    }
+
+    @Test
+    void roundTripsThroughABuffer() throws Exception {
+        Random random = new Random(3);
+        for (int n = 0 ; n < 200 ; ++n) {
+            DFA dfa = DFA.convertFrom(Automata.randomNFA(random));
+            for (CompiledDFA compiled : new CompiledDFA[] { dfa.compile(), dfa.trim().compile(), dfa.minimize().compile() }) {
+                boolean withStateNames = n % 2 == 0;
+                BinaryDFA binary = BinaryDFA.wrap(BinaryDFA.toByteBuffer(compiled, withStateNames));
+
+                assertArrayEquals(steps(compiled), steps(binary));
+                assertSameTable(compiled, binary.toCompiledDFA(), withStateNames);
+                for (String input : Automata.words(5, dfa.getAlphabet())) {
+                    assertEquals(compiled.matches(input), binary.matches(input), input);
+                }
+            }
+        }
+    }
+
+    @Test
+    void roundTripsThroughAMappedFile(@TempDir Path directory) throws Exception {
+        Random random = new Random(4);
+        DFA dfa = DFA.createFrom(Benchmark.randomDFATable(64, 4, random), "q0", new String[] { "q1", "q7" });
+        Path path = directory.resolve("dfa.bin");
+
+        BinaryDFA.write(dfa.compile(), path, true);
+        BinaryDFA binary = BinaryDFA.map(path);
+
+        assertArrayEquals(steps(dfa.compile()), steps(binary));
+        assertSameTable(dfa.compile(), binary.toCompiledDFA(), true);
+    }
+
+}
@@ -0,0 +1,99 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class BytecodeCompilerTest {
+
+    private static DFA randomDFA(int stateCount, int symbolCount, Random random) throws InvalidAlgorithmParameterException {
+        return DFA.createFrom(Benchmark.randomDFATable(stateCount, symbolCount, random), "q0", new String[] { "q0", "q1" });
+    }
+
+    private static String randomInput(int symbolCount, Random random) {
+        char[] input = new char[random.nextInt(30)];
+        for (int i = 0 ; i < input.length ; ++i) {
+            input[i] = (char) ('0' + random.nextInt(symbolCount + 1));
+        }
+        return new String(input);
+    }
+
+    private static void assertSameLanguage(DFA dfa, Recognizer recognizer, int symbolCount, Random random) {
+        CompiledDFA compiled = dfa.compile();
+        for (int i = 0 ; i < 500 ; ++i) {
+            String input = randomInput(symbolCount, random);
+            assertEquals(compiled.matches(input), recognizer.matches(input), input);
+        }
+    }
+
+    @Test
+    void smallDFAsAreCompiledToBytecode() throws InvalidAlgorithmParameterException {
+        Random random = new Random(20);
+        for (int t = 0 ; t < 50 ; ++t) {
+            DFA dfa = randomDFA(1 + random.nextInt(16), 1 + random.nextInt(4), random);
+            Recognizer recognizer = BytecodeCompiler.compile(dfa);
+
+            assertFalse(recognizer instanceof RowTable);
+            assertSameLanguage(dfa, recognizer, 4, random);
+        }
+    }
+
+    @Test
+    void tooManyStatesFallBackToTheTable() throws InvalidAlgorithmParameterException {
+        Random random = new Random(21);
+        DFA dfa = randomDFA(40, 2, random);
+        Recognizer recognizer = BytecodeCompiler.compile(dfa, 8);
+
+        assertTrue(recognizer instanceof RowTable);
+        assertSameLanguage(dfa, recognizer, 2, random);
+    }
+
+    @Test
+    void tooMuchCodeFallsBackToTheTable() throws InvalidAlgorithmParameterException {
+        Random random = new Random(22);
+        DFA dfa = randomDFA(200, 10, random);
+        Recognizer recognizer = BytecodeCompiler.compile(dfa);
+
+        assertTrue(recognizer instanceof RowTable);
+        assertSameLanguage(dfa, recognizer, 10, random);
+    }
+
+    @Test
+    void missingTransitionsReject() throws InvalidAlgorithmParameterException {
+        Random random = new Random(23);
+        for (int t = 0 ; t < 50 ; ++t) {
+            String[][] table = Benchmark.randomDFATable(1 + random.nextInt(8), 3, random);
+            for (int r = 1 ; r < table.length ; ++r) {
+                for (int c = 1 ; c < table[r].length ; ++c) {
+                    if (random.nextInt(3) == 0) {
+                        table[r][c] = null;
+                    }
+                }
+            }
+            DFA trimmed = DFA.createFrom(table, "q0", new String[] { "q0", "q1" }).trim();
+
+            assertSameLanguage(trimmed, BytecodeCompiler.compile(trimmed), 3, random);
+            assertSameLanguage(trimmed, BytecodeCompiler.interpret(trimmed), 3, random);
+        }
+    }
+
+    @Test
+    void multiCharSymbolsAreNeverMatched() throws InvalidAlgorithmParameterException {
+        DFA dfa = DFA.createFrom(new String[][] {
+            { "",   "a",  "bc" },
+            { "q0", "q1", "q1" },
+            { "q1", "q1", "q1" }
+        }, "q0", new String[] { "q1" });
+        Recognizer recognizer = BytecodeCompiler.compile(dfa);
+
+        assertTrue(recognizer.matches("a"));
+        assertTrue(recognizer.matches("aa"));
+        assertFalse(recognizer.matches("bc"));
+        assertFalse(recognizer.matches("b"));
+        assertFalse(recognizer.matches(""));
+    }
+
+}
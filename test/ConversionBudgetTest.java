@@ -0,0 +1,129 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ConversionBudgetTest {
+
+    private static NFA nthSymbolFromEnd(int n) throws InvalidAlgorithmParameterException {
+        return Benchmark.nthSymbolFromEnd(Benchmark.nthSymbolFromEndTable(n), n);
+    }
+
+    private static void assertMatchesNFA(ConversionResult result, NFA nfa, long seed) {
+        Random random = new Random(seed);
+        for (int i = 0 ; i < 500 ; ++i) {
+            String input = Benchmark.randomInput(random.nextInt(40), random);
+            assertEquals(nfa.input(input), result.matches(input), input);
+        }
+        assertFalse(result.input("2"));
+    }
+
+    @Test
+    void withinTheBudgetTheConversionIsComplete() throws InvalidAlgorithmParameterException {
+        NFA nfa = nthSymbolFromEnd(6);
+        ConversionResult result = DFA.convertFrom(nfa, new ConversionBudget().setMaxStates(1000));
+
+        assertEquals(ConversionResult.Status.COMPLETE, result.getStatus());
+        assertTrue(result.isComplete());
+        assertEquals(result.getStateCount(), result.getExpandedCount());
+        Random random = new Random(1);
+        for (int i = 0 ; i < 200 ; ++i) {
+            String input = Benchmark.randomInput(random.nextInt(20), random);
+            assertEquals(nfa.input(input), result.getDFA().input(input), input);
+        }
+    }
+
+    @Test
+    void stateLimitStopsTheConversion() throws InvalidAlgorithmParameterException {
+        NFA nfa = nthSymbolFromEnd(12);
+        ConversionResult result = DFA.convertFrom(nfa, new ConversionBudget().setMaxStates(100));
+
+        assertEquals(ConversionResult.Status.STATE_LIMIT, result.getStatus());
+        assertFalse(result.isComplete());
+        assertTrue(result.getExpandedCount() < result.getStateCount());
+        assertTrue(result.getStateCount() <= 100 + 2);
+        assertMatchesNFA(result, nfa, 2);
+    }
+
+    @Test
+    void memoryLimitStopsTheConversion() throws InvalidAlgorithmParameterException {
+        NFA nfa = nthSymbolFromEnd(12);
+        ConversionResult result = DFA.convertFrom(nfa, new ConversionBudget().setMaxMemory(1 << 16));
+
+        assertEquals(ConversionResult.Status.MEMORY_LIMIT, result.getStatus());
+        assertMatchesNFA(result, nfa, 3);
+    }
+
+    @Test
+    void deadlineStopsTheConversion() throws InvalidAlgorithmParameterException {
+        NFA nfa = nthSymbolFromEnd(20);
+        ConversionResult result = DFA.convertFrom(nfa, new ConversionBudget().setTimeout(1, TimeUnit.MILLISECONDS));
+
+        assertEquals(ConversionResult.Status.DEADLINE, result.getStatus());
+        assertTrue(result.getStateCount() < 1 << 20);
+        assertMatchesNFA(result, nfa, 4);
+    }
+
+    @Test
+    void cancellationStopsTheConversion() throws InvalidAlgorithmParameterException {
+        NFA nfa = nthSymbolFromEnd(12);
+        ConversionBudget budget = new ConversionBudget();
+        ConversionListener cancelling = new ConversionListener() {
+            @Override
+            public void onSubsetExpanded(int index, int subsetSize, int closureLookups, int worklistDepth) {
+                if (index == 9) {
+                    budget.cancel();
+                }
+            }
+        };
+        ConversionResult result = DFA.convertFrom(nfa, cancelling, budget);
+
+        assertEquals(ConversionResult.Status.CANCELLED, result.getStatus());
+        assertEquals(10, result.getExpandedCount());
+        assertMatchesNFA(result, nfa, 5);
+
+        ConversionResult again = DFA.convertFrom(nfa, budget);
+        assertEquals(ConversionResult.Status.CANCELLED, again.getStatus());
+        assertEquals(0, again.getExpandedCount());
+        assertMatchesNFA(again, nfa, 6);
+    }
+
+    @Test
+    void interruptCountsAsCancellation() throws InvalidAlgorithmParameterException {
+        NFA nfa = nthSymbolFromEnd(12);
+        Thread.currentThread().interrupt();
+        try {
+            ConversionResult result = DFA.convertFrom(nfa, new ConversionBudget());
+            assertEquals(ConversionResult.Status.CANCELLED, result.getStatus());
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void partialDFAThrowsOnStatesThatWereNotExpanded() throws InvalidAlgorithmParameterException {
+        NFA nfa = nthSymbolFromEnd(12);
+        ConversionResult result = DFA.convertFrom(nfa, new ConversionBudget().setMaxStates(20));
+        DFA dfa = result.getDFA();
+
+        assertFalse(result.isComplete());
+        assertEquals(result.getStateCount(), dfa.getStates().size());
+        assertEquals(nfa.input("1"), dfa.input("1"));
+        String longInput = "1".repeat(12);
+        assertThrows(InvalidAlgorithmParameterException.class, () -> dfa.input(longInput));
+        assertEquals(nfa.input(longInput), result.matches(longInput));
+    }
+
+    @Test
+    void invalidLimitsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ConversionBudget().setMaxStates(0));
+    }
+
+}
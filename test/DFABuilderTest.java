@@ -0,0 +1,107 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class DFABuilderTest {
+
+    private static final String[] SYMBOLS = { "b", "a", "c", "ab" };
+
+    /**
+     * Up to seven states, unnamed or named like the default names, with
+     * repeated transitions for the same state and symbol.
+     */
+    private static DFABuilder randomBuilder(Random random) {
+        DFABuilder builder = new DFABuilder();
+        int stateCount = 1 + random.nextInt(7);
+        for (int s = 0 ; s < stateCount ; ++s) {
+            if (random.nextInt(3) == 0) {
+                builder.state("q" + random.nextInt(7));
+            } else {
+                builder.addState();
+            }
+        }
+        stateCount = builder.getStateCount();
+        int transitionCount = random.nextInt(3 * stateCount + 1);
+        for (int t = 0 ; t < transitionCount ; ++t) {
+            builder.addTransition(random.nextInt(stateCount), SYMBOLS[random.nextInt(SYMBOLS.length)], random.nextInt(stateCount));
+        }
+        return builder.setStartState(random.nextInt(stateCount)).addAcceptState(random.nextInt(stateCount));
+    }
+
+    @Test
+    void compileMatchesBuildThenCompile() throws InvalidAlgorithmParameterException {
+        Random random = new Random(7);
+        for (int t = 0 ; t < 5000 ; ++t) {
+            DFABuilder builder = randomBuilder(random);
+            CompiledDFA direct = builder.compile();
+            CompiledDFA built = builder.build().compile();
+
+            assertEquals(built.getStateCount(), direct.getStateCount());
+            assertEquals(built.getSymbolTable().size(), direct.getSymbolTable().size());
+            for (int s = 0 ; s < direct.getStateCount() ; ++s) {
+                assertEquals(built.getStateName(s), direct.getStateName(s));
+                assertEquals(built.isAccepting(s), direct.isAccepting(s));
+                for (int symbol = 0 ; symbol < direct.getSymbolTable().size() ; ++symbol) {
+                    int builtSymbol = built.getSymbolTable().indexOf(direct.getSymbolTable().getSymbol(symbol));
+                    assertTrue(builtSymbol >= 0);
+                    assertEquals(built.getNextState(s, built.getSymbolTable().classOf(builtSymbol)),
+                            direct.getNextState(s, direct.getSymbolTable().classOf(symbol)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void defaultNamesDoNotCollideWithNamedStates() throws InvalidAlgorithmParameterException {
+        DFABuilder builder = new DFABuilder();
+        int unnamed = builder.addState();
+        int named = builder.state("q0");
+        builder.addTransition(unnamed, "a", named).setStartState(unnamed).addAcceptState(named);
+
+        Set<String> names = new HashSet<>();
+        for (DState state : builder.build().getStates()) {
+            names.add(state.getStateName());
+        }
+        assertEquals(Set.of("q0", "q0'"), names);
+
+        CompiledDFA compiled = builder.compile();
+        assertNotEquals(compiled.getStateName(0), compiled.getStateName(1));
+    }
+
+    @Test
+    void unnamedNFAStatesGetUniqueNames() throws InvalidAlgorithmParameterException {
+        NFABuilder builder = new NFABuilder();
+        int first = builder.addState();
+        builder.state("q1");
+        int second = builder.addState();
+        builder.state("q2'");
+        builder.addTransitions(first, null, 1, second).setStartState(first).addAcceptState(second);
+
+        Set<String> names = new HashSet<>();
+        for (NState state : builder.build().getStates()) {
+            names.add(state.getStateName());
+        }
+        assertEquals(Set.of("q0", "q1", "q2", "q2'"), names);
+    }
+
+    @Test
+    void unknownStatesAndMissingStartAreRejected() {
+        DFABuilder builder = new DFABuilder();
+        int state = builder.addState();
+
+        assertThrows(IllegalArgumentException.class, () -> builder.addTransition(state, "a", state + 1));
+        assertThrows(IllegalArgumentException.class, () -> builder.setStartState(-1));
+        builder.addAcceptState(state);
+        assertThrows(InvalidAlgorithmParameterException.class, builder::build);
+        assertThrows(InvalidAlgorithmParameterException.class, builder::compile);
+    }
+
+}
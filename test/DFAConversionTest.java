@@ -0,0 +1,44 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DFAConversionTest {
+
+    @Test
+    void convertedDFAAcceptsTheLanguageOfTheNFA() throws InvalidAlgorithmParameterException {
+        Random random = new Random(1);
+        for (int n = 0 ; n < 500 ; ++n) {
+            NFA nfa = Automata.randomNFA(random);
+            DFA dfa = DFA.convertFrom(nfa);
+            DFA parallel = DFA.convertFromParallel(nfa);
+            ConversionResult budgeted = DFA.convertFrom(nfa, new ConversionBudget());
+
+            assertTrue(budgeted.isComplete());
+            for (String input : Automata.words(6, dfa.getAlphabet())) {
+                boolean expected = nfa.input(input);
+                assertEquals(expected, dfa.input(input), input);
+                assertEquals(expected, parallel.input(input), input);
+                assertEquals(expected, budgeted.input(input), input);
+                assertEquals(expected, dfa.compile().matches(input), input);
+            }
+        }
+    }
+
+    @Test
+    void nthSymbolFromTheEndNeedsEverySubset() throws InvalidAlgorithmParameterException {
+        for (int n = 1 ; n <= 8 ; ++n) {
+            NFA nfa = Benchmark.nthSymbolFromEnd(Benchmark.nthSymbolFromEndTable(n), n);
+            DFA dfa = DFA.convertFrom(nfa);
+
+            assertEquals(1 << n, dfa.minimize().compile().getStateCount());
+            for (String input : Automata.words(n + 2, dfa.getAlphabet())) {
+                assertEquals(nfa.input(input), dfa.input(input), input);
+            }
+        }
+    }
+
+}
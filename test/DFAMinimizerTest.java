@@ -0,0 +1,48 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DFAMinimizerTest {
+
+    @Test
+    void mergesEquivalentStates() throws InvalidAlgorithmParameterException {
+        DFA dfa = DFA.createFrom(new String[][] {
+            { "",   "a",  "b" },
+            { "q0", "q1", "q2" },
+            { "q1", "q3", "q0" },
+            { "q2", "q3", "q0" },
+            { "q3", "q3", "q3" }
+        }, "q0", new String[] { "q1", "q2" });
+
+        DFA minimal = dfa.minimize();
+
+        assertEquals(3, minimal.compile().getStateCount());
+        for (String input : Automata.words(6, dfa.getAlphabet())) {
+            assertEquals(dfa.input(input), minimal.input(input), input);
+        }
+    }
+
+    @Test
+    void keepsTheLanguageAndReachesAFixpoint() throws InvalidAlgorithmParameterException {
+        Random random = new Random(2);
+        for (int n = 0 ; n < 500 ; ++n) {
+            NFA nfa = Automata.randomNFA(random);
+            DFA dfa = DFA.convertFrom(nfa);
+            DFA minimal = dfa.minimize();
+            int stateCount = minimal.compile().getStateCount();
+
+            assertTrue(stateCount <= dfa.compile().getStateCount());
+            assertEquals(stateCount, minimal.minimize().compile().getStateCount());
+            assertEquals(stateCount, DFA.convertFromParallel(nfa).minimize().compile().getStateCount());
+            assertTrue(LanguageCheck.equivalent(dfa, minimal).holds());
+            for (String input : Automata.words(6, dfa.getAlphabet())) {
+                assertEquals(nfa.input(input), minimal.input(input), input);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.InvalidAlgorithmParameterException;
+
+import org.junit.jupiter.api.Test;
+
+class DFAProductTest {
+
+    private static final String[] INPUTS = { "", "0", "1", "00", "01", "10", "11", "011", "101", "110", "0110", "1111" };
+
+    /**
+     * Even number of 1s, over {0, 1}.
+     */
+    private static DFA evenOnes() throws InvalidAlgorithmParameterException {
+        return DFA.createFrom(new String[][] {
+            { "",     "0",    "1" },
+            { "even", "even", "odd" },
+            { "odd",  "odd",  "even" }
+        }, "even", new String[] { "even" });
+    }
+
+    /**
+     * Any number of 0s, over {0}.
+     */
+    private static DFA zeros() throws InvalidAlgorithmParameterException {
+        return DFA.createFrom(new String[][] {
+            { "",  "0" },
+            { "z", "z" }
+        }, "z", new String[] { "z" });
+    }
+
+    private static boolean acceptsWithin(DFA dfa, String input) throws InvalidAlgorithmParameterException {
+        for (int i = 0 ; i < input.length() ; ++i) {
+            if (!dfa.getAlphabet().contains(String.valueOf(input.charAt(i)))) {
+                return false;
+            }
+        }
+        return dfa.input(input);
+    }
+
+    @Test
+    void intersectionOverDifferentAlphabetsRejectsSymbolsOfOneSide() throws InvalidAlgorithmParameterException {
+        DFA product = evenOnes().intersect(zeros());
+
+        assertFalse(product.input("01"));
+        assertFalse(product.input("1"));
+        assertTrue(product.input("00"));
+        assertTrue(product.compile().isPartial());
+    }
+
+    @Test
+    void productsMatchTheirComponents() throws InvalidAlgorithmParameterException {
+        DFA x = evenOnes();
+        DFA y = zeros();
+        DFA union = x.union(y);
+        DFA intersection = x.intersect(y);
+        DFA difference = x.difference(y);
+        DFA reverseDifference = y.difference(x);
+
+        for (String input : INPUTS) {
+            boolean inX = acceptsWithin(x, input);
+            boolean inY = acceptsWithin(y, input);
+            assertEquals(inX || inY, union.input(input), input);
+            assertEquals(inX && inY, intersection.input(input), input);
+            assertEquals(inX && !inY, difference.input(input), input);
+            assertEquals(inY && !inX, reverseDifference.input(input), input);
+        }
+    }
+
+    @Test
+    void complementStaysWithinTheAlphabet() throws InvalidAlgorithmParameterException {
+        DFA x = evenOnes();
+        DFA complement = x.complement();
+
+        for (String input : INPUTS) {
+            assertEquals(!x.input(input), complement.input(input), input);
+        }
+        assertThrows(InvalidAlgorithmParameterException.class, () -> complement.input("2"));
+    }
+
+    @Test
+    void productsKeepRejectingAfterMinimizeTrimAndStorage() throws Exception {
+        DFA product = evenOnes().intersect(zeros());
+
+        assertFalse(product.minimize().input("01"));
+        assertFalse(product.trim().input("01"));
+        assertFalse(DFA.fromCompiled(BinaryDFA.wrap(BinaryDFA.toByteBuffer(product.compile(), true)).toCompiledDFA()).input("01"));
+        assertThrows(InvalidAlgorithmParameterException.class, () -> product.input("2"));
+    }
+
+}
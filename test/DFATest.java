@@ -0,0 +1,81 @@
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.InvalidAlgorithmParameterException;
+
+import org.junit.jupiter.api.Test;
+
+class DFATest {
+
+    /**
+     * q0 -0-> q1, q1 -0-> q1, q1 accepts.
+     */
+    private static DFA zeros() throws InvalidAlgorithmParameterException {
+        return DFA.createFrom(new String[][] {
+            { "",   "0" },
+            { "q0", "q1" },
+            { "q1", "q1" }
+        }, "q0", new String[] { "q1" });
+    }
+
+    private static DState state(DFA dfa, String name) {
+        for (DState state : dfa.getStates()) {
+            if (name.equals(state.getStateName())) {
+                return state;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    @Test
+    void editsAfterTheFirstInputAreSeen() throws InvalidAlgorithmParameterException {
+        DFA dfa = zeros();
+        assertTrue(dfa.input("0"));
+
+        DState q0 = state(dfa, "q0");
+        q0.putNextState("0", q0);
+
+        assertFalse(dfa.input("0"));
+    }
+
+    @Test
+    void editsReachingNewStatesAreSeen() throws InvalidAlgorithmParameterException {
+        DFA dfa = zeros();
+        assertThrows(InvalidAlgorithmParameterException.class, () -> dfa.input("1"));
+
+        DState q1 = state(dfa, "q1");
+        state(dfa, "q0").putNextState("1", new DState("q2"));
+        new DState("unrelated").putNextState("0", q1);
+        assertFalse(dfa.input("1"));
+
+        state(dfa, "q0").putNextState("1", q1);
+        assertTrue(dfa.input("1"));
+    }
+
+    @Test
+    void unchangedStatesKeepTheCompiledForm() throws InvalidAlgorithmParameterException {
+        DFA dfa = zeros();
+        CompiledDFA compiled = dfa.compile();
+
+        new DState("unrelated").putNextState("0", new DState("other"));
+        state(dfa, "q1").putNextState("0", state(dfa, "q1"));
+
+        assertSame(compiled, dfa.compile());
+    }
+
+    @Test
+    void editedTrimmedDFAStaysPartial() throws InvalidAlgorithmParameterException {
+        DFA trimmed = zeros().trim();
+        assertTrue(trimmed.input("00"));
+
+        DState start = trimmed.getStartState();
+        start.putNextState("1", start);
+
+        assertFalse(trimmed.input("1"));
+        assertTrue(trimmed.compile().isPartial());
+        assertThrows(InvalidAlgorithmParameterException.class, () -> trimmed.input("2"));
+    }
+
+}
@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class IncrementalDFATest {
+
+    @Test
+    void followsTheFullConversion() throws InvalidAlgorithmParameterException {
+        Random random = new Random(5);
+        String[] symbols = { null, "a", "b", "c" };
+        for (int n = 0 ; n < 200 ; ++n) {
+            NFA nfa = Automata.randomNFA(random);
+            List<NState> states = new ArrayList<>(nfa.getStates());
+            try (IncrementalDFA incremental = new IncrementalDFA(nfa)) {
+                for (int t = 0 ; t < 10 ; ++t) {
+                    NState from = states.get(random.nextInt(states.size()));
+                    from.putNextState(symbols[random.nextInt(symbols.length)], states.get(random.nextInt(states.size())));
+
+                    DFA dfa = incremental.getDFA();
+                    assertTrue(LanguageCheck.equivalent(DFA.convertFrom(nfa), dfa).holds());
+                    for (String input : Automata.words(5, dfa.getAlphabet())) {
+                        assertEquals(nfa.input(input), dfa.input(input), input);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void followsStatesAddedAfterTheConversion() {
+        Random random = new Random(6);
+        String[] symbols = { null, "a", "b" };
+        NState start = new NState("s");
+        NState accept = new NState("f");
+        start.putNextState("a", accept);
+        NFA nfa = new NFA(new HashSet<>(List.of(start, accept)), start, Set.of(accept));
+        List<NState> states = new ArrayList<>(List.of(start, accept));
+
+        try (IncrementalDFA incremental = new IncrementalDFA(nfa)) {
+            for (int t = 0 ; t < 150 ; ++t) {
+                NState added = new NState("n" + t);
+                added.putNextState(symbols[random.nextInt(symbols.length)], states.get(random.nextInt(states.size())));
+                states.get(random.nextInt(states.size())).putNextState(symbols[random.nextInt(symbols.length)], added);
+                states.add(added);
+                if (t % 10 == 9) {
+                    assertTrue(LanguageCheck.equivalent(DFA.convertFrom(nfa), incremental.getDFA()).holds());
+                }
+            }
+        }
+    }
+
+    @Test
+    void stopsFollowingOnceClosed() {
+        NState start = new NState("s");
+        NState accept = new NState("t");
+        start.putNextState("a", accept);
+        NFA nfa = new NFA(new HashSet<>(List.of(start, accept)), start, Set.of(accept));
+
+        IncrementalDFA incremental = new IncrementalDFA(nfa);
+        incremental.close();
+        start.putNextState("b", accept);
+
+        assertEquals(0, incremental.getUpdateCount());
+    }
+
+}
@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class InterleavedMatcherTest {
+
+    /**
+     * Lengths from empty to a few hundred, and some with a char outside the alphabet.
+     */
+    private static List<String> randomInputs(int count, Random random) {
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0 ; i < count ; ++i) {
+            String input = Benchmark.randomInput(random.nextInt(4) == 0 ? random.nextInt(3) : random.nextInt(300), random);
+            if (random.nextInt(10) == 0) {
+                input += "x";
+            }
+            inputs.add(input);
+        }
+        return inputs;
+    }
+
+    private static BitSet expected(CompiledDFA dfa, List<String> inputs) {
+        BitSet accepted = new BitSet();
+        for (int i = 0 ; i < inputs.size() ; ++i) {
+            accepted.set(i, dfa.matches(inputs.get(i)));
+        }
+        return accepted;
+    }
+
+    @Test
+    void everyLaneCountAgreesWithTheDFA() {
+        Random random = new Random(23);
+        for (int lanes : new int[] { 1, 2, 7, InterleavedMatcher.DEFAULT_LANES, 33, InterleavedMatcher.MAX_LANES }) {
+            for (int t = 0 ; t < 10 ; ++t) {
+                CompiledDFA dfa = Benchmark.randomCompiledDFA(1 + random.nextInt(50), random);
+                List<String> inputs = randomInputs(random.nextInt(2 * lanes + 10), random);
+                InterleavedMatcher matcher = new InterleavedMatcher(dfa, lanes);
+
+                assertEquals(expected(dfa, inputs), matcher.matchInterleaved(inputs), "lanes " + lanes);
+                for (String input : inputs) {
+                    assertEquals(dfa.matches(input), matcher.matches(input), input);
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchAllSplitsIntoChunks() {
+        Random random = new Random(24);
+        CompiledDFA dfa = Benchmark.randomCompiledDFA(100, random);
+        List<String> inputs = randomInputs(3000, random);
+
+        assertEquals(expected(dfa, inputs), new InterleavedMatcher(dfa, 1).matchAll(inputs));
+        assertEquals(expected(dfa, inputs), new InterleavedMatcher(dfa, InterleavedMatcher.MAX_LANES).matchAll(inputs));
+    }
+
+    @Test
+    void laneCountIsChecked() {
+        CompiledDFA dfa = Benchmark.randomCompiledDFA(4, new Random(25));
+
+        assertThrows(IllegalArgumentException.class, () -> new InterleavedMatcher(dfa, 0));
+        assertThrows(IllegalArgumentException.class, () -> new InterleavedMatcher(dfa, InterleavedMatcher.MAX_LANES + 1));
+        assertEquals(InterleavedMatcher.MAX_LANES, new InterleavedMatcher(dfa, InterleavedMatcher.MAX_LANES).getLanes());
+    }
+
+}
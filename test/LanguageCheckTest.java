@@ -0,0 +1,75 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LanguageCheckTest {
+
+    @Test
+    void findsAShortestCounterexample() throws InvalidAlgorithmParameterException {
+        NFA four = Benchmark.nthSymbolFromEnd(Benchmark.nthSymbolFromEndTable(4), 4);
+        NFA three = Benchmark.nthSymbolFromEnd(Benchmark.nthSymbolFromEndTable(3), 3);
+
+        LanguageCheck.Result result = LanguageCheck.equivalent(four, three);
+
+        assertFalse(result.holds());
+        assertEquals(3, result.getCounterexample().length());
+        assertNotEquals(four.input(result.getCounterexample()), three.input(result.getCounterexample()));
+        assertTrue(LanguageCheck.equivalent(four, four).holds());
+        assertNull(LanguageCheck.equivalent(four, four).getCounterexample());
+    }
+
+    @Test
+    void agreesWithEnumeration() throws InvalidAlgorithmParameterException {
+        Random random = new Random(6);
+        List<String> inputs = Automata.words(8, List.of("a", "b"));
+        for (int n = 0 ; n < 500 ; ++n) {
+            NFA a = Automata.randomNFA(random);
+            NFA b = Automata.randomNFA(random);
+            String differing = null;
+            String onlyInB = null;
+            for (String input : inputs) {
+                boolean inA = a.input(input);
+                boolean inB = b.input(input);
+                if (differing == null && inA != inB) {
+                    differing = input;
+                }
+                if (onlyInB == null && inB && !inA) {
+                    onlyInB = input;
+                }
+            }
+
+            checkEquivalence(LanguageCheck.equivalent(a, b), differing, a, b);
+            checkEquivalence(LanguageCheck.equivalent(DFA.convertFrom(a), DFA.convertFrom(b)), differing, a, b);
+            checkInclusion(LanguageCheck.includes(a, b), onlyInB, a, b);
+            checkInclusion(LanguageCheck.includes(DFA.convertFrom(a), DFA.convertFrom(b)), onlyInB, a, b);
+        }
+    }
+
+    private static void checkEquivalence(LanguageCheck.Result result, String differing, NFA a, NFA b) {
+        assertEquals(differing == null, result.holds());
+        if (differing != null) {
+            String counterexample = result.getCounterexample();
+            assertEquals(differing.length(), counterexample.length());
+            assertNotEquals(a.input(counterexample), b.input(counterexample));
+        }
+    }
+
+    private static void checkInclusion(LanguageCheck.Result result, String onlyInB, NFA a, NFA b) {
+        assertEquals(onlyInB == null, result.holds());
+        if (onlyInB != null) {
+            String counterexample = result.getCounterexample();
+            assertEquals(onlyInB.length(), counterexample.length());
+            assertTrue(b.input(counterexample));
+            assertFalse(a.input(counterexample));
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class LazyDFATest {
+
+    private static final int N = 8;
+
+    private static NFA nthSymbolFromEnd() throws InvalidAlgorithmParameterException {
+        return Benchmark.nthSymbolFromEnd(Benchmark.nthSymbolFromEndTable(N), N);
+    }
+
+    private static boolean nthSymbolFromEndIsOne(String input) {
+        return input.length() >= N && input.charAt(input.length() - N) == '1';
+    }
+
+    /**
+     * Long runs of zeros, which stay in one state, between a few random symbols.
+     */
+    private static String slowInput(Random random) {
+        StringBuilder input = new StringBuilder();
+        for (int block = 0 ; block < 4 ; ++block) {
+            input.append("0".repeat(700)).append(Benchmark.randomInput(N, random));
+        }
+        return input.toString();
+    }
+
+    @Test
+    void agreesWithTheNFA() {
+        Random random = new Random(5);
+        List<String> words = Automata.words(6, List.of("a", "b"));
+        for (int t = 0 ; t < 500 ; ++t) {
+            NFA nfa = Automata.randomNFA(random);
+            LazyDFA lazy = new LazyDFA(nfa, 3 + random.nextInt(3));
+            for (String input : words) {
+                assertEquals(nfa.compile().matches(input), lazy.matches(input), input);
+            }
+        }
+    }
+
+    @Test
+    void cacheIsFlushedWhenFull() throws InvalidAlgorithmParameterException {
+        Random random = new Random(6);
+        LazyDFA lazy = new LazyDFA(nthSymbolFromEnd(), 16);
+        for (int t = 0 ; t < 20 ; ++t) {
+            String input = slowInput(random);
+            assertEquals(nthSymbolFromEndIsOne(input), lazy.matches(input));
+            assertTrue(lazy.getStateCount() <= 16);
+        }
+        assertTrue(lazy.getFlushCount() > 0);
+        assertEquals(0, lazy.getFallbackCount());
+    }
+
+    @Test
+    void thrashingFallsBackToTheNFA() throws InvalidAlgorithmParameterException {
+        Random random = new Random(7);
+        LazyDFA lazy = new LazyDFA(nthSymbolFromEnd(), 16);
+        for (int t = 0 ; t < 20 ; ++t) {
+            String input = Benchmark.randomInput(5000, random);
+            assertEquals(nthSymbolFromEndIsOne(input), lazy.matches(input));
+            assertTrue(lazy.getStateCount() <= 16);
+        }
+        assertTrue(lazy.getFallbackCount() > 0);
+    }
+
+    @Test
+    void largeCacheIsNeverFlushed() throws InvalidAlgorithmParameterException {
+        Random random = new Random(8);
+        LazyDFA lazy = new LazyDFA(nthSymbolFromEnd());
+        for (int t = 0 ; t < 20 ; ++t) {
+            String input = Benchmark.randomInput(5000, random);
+            assertEquals(nthSymbolFromEndIsOne(input), lazy.matches(input));
+        }
+        assertEquals(1 << N, lazy.getStateCount());
+        assertEquals(0, lazy.getFlushCount());
+    }
+
+    @Test
+    void changesToTheNFAAreSeen() {
+        NState start = new NState("s");
+        NState accept = new NState("f");
+        start.putNextState("a", accept);
+        NFA nfa = new NFA(Set.of(start, accept), start, Set.of(accept));
+        LazyDFA lazy = new LazyDFA(nfa);
+
+        assertTrue(lazy.matches("a"));
+        assertFalse(lazy.matches("b"));
+
+        start.putNextState("b", accept);
+        accept.putNextState("a", start);
+        assertTrue(lazy.matches("b"));
+        assertTrue(lazy.matches("aab"));
+        assertFalse(lazy.matches("ab"));
+    }
+
+    @Test
+    void tooSmallCacheIsRejected() throws InvalidAlgorithmParameterException {
+        NFA nfa = nthSymbolFromEnd();
+        assertThrows(IllegalArgumentException.class, () -> new LazyDFA(nfa, 2));
+    }
+
+}
@@ -0,0 +1,159 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidAlgorithmParameterException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MatcherTest {
+
+    /**
+     * One, two, three and four bytes in UTF-8; the last is a surrogate pair.
+     */
+    private static final String[] CHARACTERS = { "a", "é", "€", "𝄞" };
+
+    /**
+     * Random DFA over the chars of {@link #CHARACTERS}.
+     */
+    private static CompiledDFA randomDFA(Random random) throws InvalidAlgorithmParameterException {
+        String[] symbols = { "a", "é", "€", "\ud834", "\udd1e" };
+        int stateCount = 1 + random.nextInt(5);
+        String[][] table = new String[stateCount + 1][symbols.length + 1];
+        table[0][0] = "";
+        for (int c = 1 ; c <= symbols.length ; ++c) {
+            table[0][c] = symbols[c - 1];
+        }
+        for (int r = 1 ; r <= stateCount ; ++r) {
+            table[r][0] = "q" + (r - 1);
+            for (int c = 1 ; c <= symbols.length ; ++c) {
+                table[r][c] = "q" + random.nextInt(stateCount);
+            }
+        }
+        return DFA.createFrom(table, "q0", new String[] { "q0" }).compile();
+    }
+
+    private static String randomText(int length, Random random) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0 ; i < length ; ++i) {
+            text.append(CHARACTERS[random.nextInt(CHARACTERS.length)]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Hands out at most {@code step} bytes per read.
+     */
+    private static InputStream trickle(byte[] bytes, int step) {
+        return new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, step));
+            }
+        };
+    }
+
+    @Test
+    void charsCanBeFedInAnyChunks() throws IOException, InvalidAlgorithmParameterException {
+        Random random = new Random(7);
+        for (int t = 0 ; t < 200 ; ++t) {
+            CompiledDFA dfa = randomDFA(random);
+            String text = randomText(random.nextInt(20), random);
+            Matcher matcher = new Matcher(dfa);
+            for (int i = 0 ; i < text.length() ; ) {
+                int length = Math.min(text.length() - i, 1 + random.nextInt(4));
+                matcher.feed(text.subSequence(i, i + length));
+                i += length;
+            }
+
+            assertEquals(dfa.matches(text), matcher.isAccepting(), text);
+            assertEquals(dfa.matches(text), new Matcher(dfa).read(new StringReader(text)));
+        }
+    }
+
+    @Test
+    void charactersSplitAcrossByteChunksAreDecoded() throws InvalidAlgorithmParameterException {
+        Random random = new Random(8);
+        for (int t = 0 ; t < 200 ; ++t) {
+            CompiledDFA dfa = randomDFA(random);
+            String text = randomText(random.nextInt(20), random);
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            Matcher matcher = new Matcher(dfa, StandardCharsets.UTF_8);
+            ByteBuffer pending = ByteBuffer.allocate(bytes.length);
+            for (int i = 0 ; i < bytes.length ; ) {
+                int length = Math.min(bytes.length - i, 1 + random.nextInt(3));
+                pending.put(bytes, i, length).flip();
+                matcher.feed(pending);
+                pending.compact();
+                i += length;
+            }
+            pending.flip();
+            matcher.finish(pending);
+
+            assertEquals(dfa.matches(text), matcher.isAccepting(), text);
+        }
+    }
+
+    @Test
+    void charactersSplitAcrossStreamBuffersAreDecoded() throws IOException, InvalidAlgorithmParameterException {
+        Random random = new Random(9);
+        for (int t = 0 ; t < 20 ; ++t) {
+            CompiledDFA dfa = randomDFA(random);
+            String text = randomText(5000 + random.nextInt(5000), random);
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+            assertEquals(dfa.matches(text), new Matcher(dfa, StandardCharsets.UTF_8).read(new ByteArrayInputStream(bytes)));
+            assertEquals(dfa.matches(text), new Matcher(dfa, StandardCharsets.UTF_8).read(trickle(bytes, 1 + random.nextInt(3))));
+        }
+    }
+
+    @Test
+    void charactersSplitAcrossMappedRegionsAreDecoded(@TempDir Path directory) throws IOException, InvalidAlgorithmParameterException {
+        Random random = new Random(10);
+        Path file = directory.resolve("input");
+        for (int t = 0 ; t < 100 ; ++t) {
+            CompiledDFA dfa = randomDFA(random);
+            String text = randomText(random.nextInt(40), random);
+            Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+            try (FileChannel channel = FileChannel.open(file)) {
+                assertEquals(dfa.matches(text), new Matcher(dfa, StandardCharsets.UTF_8).read(channel, 4 + random.nextInt(6)), text);
+            }
+        }
+    }
+
+    @Test
+    void truncatedCharacterIsMalformed() throws IOException, InvalidAlgorithmParameterException {
+        CompiledDFA dfa = randomDFA(new Random(11));
+        byte[] bytes = "aa€".getBytes(StandardCharsets.UTF_8);
+        Matcher matcher = new Matcher(dfa, StandardCharsets.UTF_8);
+
+        assertFalse(matcher.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1))));
+        assertTrue(matcher.isRejected());
+    }
+
+    @Test
+    void withoutCharsetEveryByteIsAChar() throws IOException, InvalidAlgorithmParameterException {
+        CompiledDFA dfa = DFA.createFrom(new String[][] {
+            { "",   "Ã",  "©" },
+            { "q0", "q1", null },
+            { "q1", null, "q0" }
+        }, "q0", new String[] { "q0" }).compile();
+        byte[] bytes = "éé".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(new Matcher(dfa).read(new ByteArrayInputStream(bytes)));
+        assertFalse(new Matcher(dfa, StandardCharsets.UTF_8).read(new ByteArrayInputStream(bytes)));
+    }
+
+}
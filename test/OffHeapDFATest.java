@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class OffHeapDFATest {
+
+    /**
+     * p0 -0-> p0, p1; p1 -0,1-> p2; p2 accepts. p0 has no 1-transition, so an
+     * input starting with 1 runs into the empty subset.
+     */
+    private static NFA secondToLastIsZero() throws InvalidAlgorithmParameterException {
+        return NFA.createFrom(new String[][][] {
+            { {},     {"0"},        {"1"} },
+            { {"p0"}, {"p0", "p1"}, {} },
+            { {"p1"}, {"p2"},       {"p2"} },
+            { {"p2"}, {},           {} }
+        }, "p0", new String[] { "p2" });
+    }
+
+    @Test
+    void convertedTableRejectsOnTheEmptySubset() throws InvalidAlgorithmParameterException {
+        NFA nfa = secondToLastIsZero();
+        try (OffHeapDFA offHeap = OffHeapDFA.convertFrom(nfa)) {
+            CompiledDFA compiled = offHeap.toCompiledDFA();
+            DFA dfa = DFA.fromCompiled(compiled);
+
+            assertTrue(compiled.isPartial());
+            assertFalse(offHeap.matches("10"));
+            assertFalse(DFA.convertFrom(nfa).input("10"));
+            assertFalse(dfa.input("1"));
+            assertFalse(dfa.input("10"));
+            assertTrue(dfa.input("01"));
+            assertThrows(InvalidAlgorithmParameterException.class, () -> dfa.input("2"));
+        }
+    }
+
+    @Test
+    void roundTripsAgreeWithTheNFA() throws InvalidAlgorithmParameterException {
+        Random random = new Random(7);
+        for (int n = 0 ; n < 300 ; ++n) {
+            NFA nfa = Automata.randomNFA(random);
+            DFA expected = DFA.convertFrom(nfa);
+            try (OffHeapDFA converted = OffHeapDFA.convertFrom(nfa);
+                 OffHeapDFA copied = OffHeapDFA.copyOf(expected.compile())) {
+                DFA fromConverted = DFA.fromCompiled(converted.toCompiledDFA());
+                DFA fromCopied = DFA.fromCompiled(copied.toCompiledDFA());
+
+                for (String input : Automata.words(6, expected.getAlphabet())) {
+                    boolean accepted = nfa.input(input);
+                    assertEquals(accepted, expected.input(input), input);
+                    assertEquals(accepted, converted.matches(input), input);
+                    assertEquals(accepted, copied.matches(input), input);
+                    assertEquals(accepted, fromConverted.input(input), input);
+                    assertEquals(accepted, fromCopied.input(input), input);
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchingThrowsOnceClosed() throws InvalidAlgorithmParameterException {
+        OffHeapDFA offHeap = OffHeapDFA.convertFrom(secondToLastIsZero());
+        offHeap.close();
+
+        assertThrows(IllegalStateException.class, () -> offHeap.matches("00"));
+    }
+
+}
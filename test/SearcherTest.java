@@ -0,0 +1,145 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SearcherTest {
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0 ; i < length ; ++i) {
+            text.append("aabc".charAt(random.nextInt(4)));
+        }
+        return text.toString();
+    }
+
+    private static List<String> search(Searcher searcher, String text) {
+        List<String> matches = new ArrayList<>();
+        int count = searcher.search(text, (start, end) -> matches.add(start + "-" + end));
+        assertEquals(matches.size(), count);
+        return matches;
+    }
+
+    private static List<String> leftmostLongest(CompiledDFA dfa, String text) {
+        List<String> matches = new ArrayList<>();
+        int from = 0;
+        while (from <= text.length()) {
+            int start = -1;
+            int end = -1;
+            for (int s = from ; s <= text.length() && start < 0 ; ++s) {
+                for (int e = text.length() ; e >= s ; --e) {
+                    if (dfa.matches(text.substring(s, e))) {
+                        start = s;
+                        end = e;
+                        break;
+                    }
+                }
+            }
+            if (start < 0) {
+                break;
+            }
+            matches.add(start + "-" + end);
+            from = end > start ? end : end + 1;
+        }
+        return matches;
+    }
+
+    /**
+     * Every match, ordered by end and then from the nearest start backwards.
+     */
+    private static List<String> all(CompiledDFA dfa, String text) {
+        List<String> matches = new ArrayList<>();
+        for (int end = 0 ; end <= text.length() ; ++end) {
+            for (int start = end ; start >= 0 ; --start) {
+                if (dfa.matches(text.substring(start, end))) {
+                    matches.add(start + "-" + end);
+                }
+            }
+        }
+        return matches;
+    }
+
+    @Test
+    void leftmostLongestMatchesBruteForce() {
+        Random random = new Random(15);
+        for (int t = 0 ; t < 500 ; ++t) {
+            CompiledDFA dfa = DFA.convertFrom(Automata.randomNFA(random)).compile();
+            Searcher searcher = new Searcher(dfa, Searcher.Mode.LEFTMOST_LONGEST, 3 + random.nextInt(5));
+            for (int i = 0 ; i < 5 ; ++i) {
+                String text = randomText(random, random.nextInt(25));
+                assertEquals(leftmostLongest(dfa, text), search(searcher, text), text);
+            }
+        }
+    }
+
+    @Test
+    void allMatchesBruteForce() {
+        Random random = new Random(16);
+        for (int t = 0 ; t < 500 ; ++t) {
+            CompiledDFA dfa = DFA.convertFrom(Automata.randomNFA(random)).compile();
+            Searcher searcher = new Searcher(dfa, Searcher.Mode.ALL, 3 + random.nextInt(5));
+            for (int i = 0 ; i < 5 ; ++i) {
+                String text = randomText(random, random.nextInt(25));
+                assertEquals(all(dfa, text), search(searcher, text), text);
+            }
+        }
+    }
+
+    @Test
+    void matchThatCouldGrowIsReportedShort() throws InvalidAlgorithmParameterException {
+        // {a} ∪ a⁺b
+        CompiledDFA dfa = DFA.createFrom(new String[][] {
+            { "",   "a",  "b" },
+            { "q0", "q1", null },
+            { "q1", "q2", "q3" },
+            { "q2", "q2", "q3" },
+            { "q3", null, null }
+        }, "q0", new String[] { "q1", "q3" }).compile();
+        Searcher searcher = new Searcher(dfa);
+
+        assertEquals(List.of("0-1", "1-2", "2-3", "3-4"), search(searcher, "aaaa"));
+        assertEquals(List.of("0-4"), search(searcher, "aaab"));
+        assertEquals(leftmostLongest(dfa, "aabaaaba"), search(searcher, "aabaaaba"));
+    }
+
+    @Test
+    void charArrayRangesReportOffsetsIntoTheArray() {
+        Random random = new Random(17);
+        for (int t = 0 ; t < 200 ; ++t) {
+            CompiledDFA dfa = DFA.convertFrom(Automata.randomNFA(random)).compile();
+            String text = randomText(random, random.nextInt(20));
+            char[] array = ("cc" + text + "cc").toCharArray();
+            for (Searcher.Mode mode : Searcher.Mode.values()) {
+                List<String> expected = new ArrayList<>();
+                for (String match : search(new Searcher(dfa, mode), text)) {
+                    String[] bounds = match.split("-");
+                    expected.add((Integer.parseInt(bounds[0]) + 2) + "-" + (Integer.parseInt(bounds[1]) + 2));
+                }
+                List<String> matches = new ArrayList<>();
+                new Searcher(dfa, mode).search(array, 2, text.length(), (start, end) -> matches.add(start + "-" + end));
+                assertEquals(expected, matches, text);
+            }
+        }
+    }
+
+    @Test
+    void callbackStopsTheSearch() throws InvalidAlgorithmParameterException {
+        CompiledDFA dfa = DFA.createFrom(new String[][] {
+            { "",   "a" },
+            { "q0", "q1" },
+            { "q1", null }
+        }, "q0", new String[] { "q1" }).compile();
+
+        for (Searcher.Mode mode : Searcher.Mode.values()) {
+            List<Integer> ends = new ArrayList<>();
+            int count = new Searcher(dfa, mode).search("aaaa", (start, end) -> ends.add(end) && ends.size() < 2);
+            assertEquals(2, count);
+            assertEquals(List.of(1, 2), ends);
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class StateAnalysisTest {
+
+    /**
+     * Inputs starting with 0, over {0, 1}: "go" is accept-absorbing, "stop"
+     * is dead and "lost" cannot be reached.
+     */
+    private static DFA startsWithZero() throws InvalidAlgorithmParameterException {
+        return DFA.createFrom(new String[][] {
+            { "",      "0",    "1" },
+            { "start", "go",   "stop" },
+            { "go",    "go",   "go" },
+            { "stop",  "stop", "stop" },
+            { "lost",  "go",   "go" }
+        }, "start", new String[] { "go" });
+    }
+
+    /**
+     * The outcome of stepping through the whole input, null for an error.
+     */
+    private static Boolean stepAll(CompiledDFA dfa, String input) {
+        int state = dfa.getStartState();
+        for (int i = 0 ; i < input.length() ; ++i) {
+            int symbolClass = dfa.getSymbolTable().classOf(input.charAt(i));
+            if (symbolClass == SymbolTable.NO_SYMBOL) {
+                return null;
+            }
+            if (state != CompiledDFA.NO_STATE) {
+                state = dfa.getNextState(state, symbolClass);
+                if (state == CompiledDFA.NO_STATE && !dfa.isPartial()) {
+                    return null;
+                }
+            }
+        }
+        return state != CompiledDFA.NO_STATE && dfa.isAccepting(state);
+    }
+
+    private static Boolean input(DFA dfa, String input) {
+        try {
+            return dfa.input(input);
+        } catch (InvalidAlgorithmParameterException e) {
+            return null;
+        }
+    }
+
+    @Test
+    void statesAreClassified() throws InvalidAlgorithmParameterException {
+        CompiledDFA compiled = startsWithZero().compile();
+        StateAnalysis analysis = compiled.analyze();
+        int start = compiled.getStartState();
+        int go = compiled.getNextState(start, compiled.getSymbolTable().classOf('0'));
+        int stop = compiled.getNextState(start, compiled.getSymbolTable().classOf('1'));
+
+        assertFalse(analysis.isDecisive(start));
+        assertTrue(analysis.isAcceptAbsorbing(go) && analysis.isDecisive(go));
+        assertTrue(analysis.isDead(stop) && analysis.isDecisive(stop));
+        assertEquals(2, analysis.getUsefulCount());
+    }
+
+    @Test
+    void trimKeepsUsefulStatesAndRejectsOnMissingTransitions() throws InvalidAlgorithmParameterException {
+        DFA trimmed = startsWithZero().trim();
+
+        assertEquals(2, trimmed.getStates().size());
+        assertTrue(trimmed.compile().isPartial());
+        assertEquals(Set.of("0", "1"), trimmed.getAlphabet());
+        assertTrue(trimmed.input("011"));
+        assertFalse(trimmed.input("1"));
+        assertFalse(trimmed.input("10"));
+        assertThrows(InvalidAlgorithmParameterException.class, () -> trimmed.input("1x"));
+        assertThrows(InvalidAlgorithmParameterException.class, () -> trimmed.input("x"));
+    }
+
+    @Test
+    void decisionPointIsTheFirstDecisiveState() throws InvalidAlgorithmParameterException {
+        DFA dfa = startsWithZero();
+
+        assertEquals(1, dfa.decisionPoint("0111"));
+        assertEquals(1, dfa.decisionPoint("1000"));
+        assertEquals(1, dfa.decisionPoint("0x"));
+        assertEquals(-1, dfa.decisionPoint(""));
+        assertEquals(dfa.decisionPoint(""), dfa.decisionPoint(null));
+        assertThrows(InvalidAlgorithmParameterException.class, () -> dfa.decisionPoint("x0"));
+
+        DFA trimmed = dfa.trim();
+        assertEquals(1, trimmed.decisionPoint("1"));
+        assertEquals(1, trimmed.decisionPoint("0"));
+    }
+
+    @Test
+    void earlyExitKeepsTheResultsOfSteppingThroughEverything() throws InvalidAlgorithmParameterException {
+        Random random = new Random(3);
+        List<String> inputs = Automata.words(5, List.of("0", "1", "x"));
+        for (int t = 0 ; t < 3000 ; ++t) {
+            int stateCount = 1 + random.nextInt(5);
+            String[][] table = new String[stateCount + 1][];
+            table[0] = new String[] { "", "0", "1" };
+            for (int s = 1 ; s <= stateCount ; ++s) {
+                table[s] = new String[3];
+                table[s][0] = "q" + (s - 1);
+                for (int c = 1 ; c < 3 ; ++c) {
+                    table[s][c] = random.nextInt(4) == 0 ? null : "q" + random.nextInt(stateCount);
+                }
+            }
+            List<String> accept = new ArrayList<>();
+            for (int s = 0 ; s < stateCount ; ++s) {
+                if (random.nextInt(3) == 0) {
+                    accept.add("q" + s);
+                }
+            }
+            if (accept.isEmpty()) {
+                accept.add("q" + random.nextInt(stateCount));
+            }
+
+            DFA dfa = DFA.createFrom(table, "q0", accept.toArray(new String[0]));
+            CompiledDFA compiled = dfa.compile();
+            DFA trimmed = dfa.trim();
+            for (String input : inputs) {
+                assertEquals(stepAll(compiled, input), input(dfa, input), input);
+                boolean valid = true;
+                for (int i = 0 ; i < input.length() ; ++i) {
+                    valid &= compiled.getSymbolTable().classOf(input.charAt(i)) != SymbolTable.NO_SYMBOL;
+                }
+                assertEquals(valid ? Boolean.valueOf(compiled.matches(input)) : null, input(trimmed, input), input);
+            }
+        }
+    }
+
+}
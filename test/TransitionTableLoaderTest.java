@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidAlgorithmParameterException;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TransitionTableLoaderTest {
+
+    @Test
+    void nfaCellsListSeveralStatesAndAnEpsilonColumn() throws IOException, InvalidAlgorithmParameterException {
+        // Inputs over {0, 1} whose second to last symbol is 0, with an unused epsilon column.
+        NFA nfa = TransitionTableLoader.readNFA(new StringReader(
+                ",0,1,\n" +
+                ">q0, q0 p0 , q0 ,\n" +
+                "p0,p1,p1,\n" +
+                "\n" +
+                "*p1,,,\n" +
+                "*e,,,\n"), ',').build();
+
+        assertFalse(nfa.input(""));
+        assertTrue(nfa.input("00"));
+        assertTrue(nfa.input("101"));
+        assertFalse(nfa.input("110"));
+
+        NFA withEpsilon = TransitionTableLoader.readNFA(new StringReader("\t0\t\n>s\ts\tt\n*t\n"), '\t').build();
+        assertTrue(withEpsilon.input(""));
+        assertTrue(withEpsilon.input("00"));
+        assertFalse(withEpsilon.input("01"));
+    }
+
+    @Test
+    void dfaMatchesCreateFrom() throws IOException, InvalidAlgorithmParameterException {
+        DFA loaded = TransitionTableLoader.readDFA(new StringReader(
+                ",0,1\n" +
+                ">*even,even,odd\n" +
+                "odd,odd,even\n"), ',').build();
+        DFA created = DFA.createFrom(new String[][] {
+            { "",     "0",    "1" },
+            { "even", "even", "odd" },
+            { "odd",  "odd",  "even" }
+        }, "even", new String[] { "even" });
+
+        for (String input : Automata.words(6, Set.of("0", "1"))) {
+            assertEquals(created.input(input), loaded.input(input), input);
+        }
+    }
+
+    @Test
+    void filesAreSplitByExtension(@TempDir Path directory) throws IOException, InvalidAlgorithmParameterException {
+        Path csv = directory.resolve("ones.csv");
+        Path tsv = directory.resolve("ones.tsv");
+        Files.writeString(csv, ",1\n>*q,q\n", StandardCharsets.UTF_8);
+        Files.writeString(tsv, "\t1\n>*q\tq\n", StandardCharsets.UTF_8);
+
+        assertTrue(TransitionTableLoader.loadDFA(csv).input("111"));
+        assertTrue(TransitionTableLoader.loadDFA(tsv).input("111"));
+        assertTrue(TransitionTableLoader.loadNFA(tsv).input("11"));
+    }
+
+    @Test
+    void malformedTablesAreRejected() {
+        assertThrows(IOException.class, () -> TransitionTableLoader.readDFA(new StringReader(",0,\n>*q,q,q\n"), ','));
+        assertThrows(IOException.class, () -> TransitionTableLoader.readDFA(new StringReader(",0\n>*q,q,q\n"), ','));
+        assertThrows(IOException.class, () -> TransitionTableLoader.readNFA(new StringReader(",0\n>*,q\n"), ','));
+        assertThrows(InvalidAlgorithmParameterException.class,
+                () -> TransitionTableLoader.readDFA(new StringReader(",0\n*q,q\n"), ',').build());
+    }
+
+}